@@ -0,0 +1,26 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.dto.event.EndProcessDTO;
+import com.sebastientr.workflow.queuing.WorkflowEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Completes the future set by {@link #expectEnd()} on the next END_PROCESS event
+ */
+@Component
+public class EndProcessListener {
+    private volatile CompletableFuture<Void> ended = CompletableFuture.completedFuture(null);
+
+    public CompletableFuture<Void> expectEnd() {
+        ended = new CompletableFuture<>();
+        return ended;
+    }
+
+    @EventListener(condition = "{event.type == T(com.sebastientr.workflow.queuing.WorkflowEvent.EventType).END_PROCESS}")
+    public void handleEndProcessEvent(WorkflowEvent<EndProcessDTO> event) {
+        ended.complete(null);
+    }
+}
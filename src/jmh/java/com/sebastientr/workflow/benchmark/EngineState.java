@@ -0,0 +1,86 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.MainApplication;
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.domain.repository.FlowRepository;
+import com.sebastientr.workflow.domain.repository.FlowTaskRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.domain.repository.TaskRepository;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.service.IWorkflowEngineService;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Engine running on an in-memory H2 database, with a {@code benchmark-flow} made of a single {@link NoopTask}.
+ * The engine does not publish nor dispatch the steps itself, so each benchmark drives them.
+ */
+@State(Scope.Benchmark)
+public class EngineState {
+    static final String FLOW_NAME = "benchmark-flow";
+
+    ConfigurableApplicationContext applicationContext;
+    IWorkflowEngineService workflowEngineService;
+    ProcessRepository processRepository;
+    CompiledFlowTask step;
+
+    @Setup
+    public void start() {
+        applicationContext = new SpringApplicationBuilder(MainApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "workflow-engine.clean-process-on-startup=false",
+                        "workflow-engine.continue-process-on-startup=false",
+                        "workflow-engine.outbox.publish-after-commit=false",
+                        "workflow-engine.outbox.poll-interval-ms=3600000"
+                )
+                .run();
+
+        FlowEntity flow = applicationContext.getBean(FlowRepository.class).save(new FlowEntity(null, FLOW_NAME, null));
+        TaskEntity task = applicationContext.getBean(TaskRepository.class).save(new TaskEntity(null, NoopTask.class.getSimpleName(), "Doing nothing", null, null, null, null, null));
+
+        FlowTaskEntity flowTask = new FlowTaskEntity();
+        flowTask.setFlow(flow);
+        flowTask.setTask(task);
+        flowTask.setAllowToFail(false);
+        flowTask.setTaskOrder(1);
+        applicationContext.getBean(FlowTaskRepository.class).save(flowTask);
+
+        FlowRegistry flowRegistry = applicationContext.getBean(FlowRegistry.class);
+        flowRegistry.reload();
+
+        workflowEngineService = applicationContext.getBean(IWorkflowEngineService.class);
+        processRepository = applicationContext.getBean(ProcessRepository.class);
+        step = flowRegistry.get(FLOW_NAME).getFirst().orElseThrow();
+    }
+
+    @TearDown
+    public void stop() {
+        applicationContext.close();
+    }
+
+    /**
+     * Start a process, its first step is left to the caller
+     *
+     * @return the process, loaded as the consumer does
+     */
+    ProcessEntity newProcess() {
+        ProcessEntity process = workflowEngineService.start(FLOW_NAME, new ContextEntity());
+        return processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return applicationContext.getBean(type);
+    }
+}
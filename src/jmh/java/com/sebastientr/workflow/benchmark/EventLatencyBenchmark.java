@@ -0,0 +1,62 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency from the publication of a START_TASK event by {@link WorkflowEngineEventPublisher} to the execution of its task
+ * by the consumer, on an engine worker. The end of the process is awaited outside of the measure.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EventLatencyBenchmark {
+    private WorkflowEngineEventPublisher workflowEngineEventPublisher;
+    private NoopTask noopTask;
+    private EndProcessListener endProcessListener;
+    private ProcessEntity process;
+    private CompletableFuture<Void> ended;
+
+    @Setup(Level.Trial)
+    public void setUp(EngineState engine) {
+        workflowEngineEventPublisher = engine.getBean(WorkflowEngineEventPublisher.class);
+        noopTask = engine.getBean(NoopTask.class);
+        endProcessListener = engine.getBean(EndProcessListener.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void newProcess(EngineState engine) {
+        process = engine.newProcess();
+        ended = endProcessListener.expectEnd();
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitEnd() throws Exception {
+        ended.get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void publishToConsume(EngineState engine) throws Exception {
+        CompletableFuture<Void> executed = noopTask.expectExecution();
+        workflowEngineEventPublisher.publishStartTaskEvent(engine.step.getFlowTask(), process.getId(), null, process.getPriority());
+        executed.get(10, TimeUnit.SECONDS);
+    }
+}
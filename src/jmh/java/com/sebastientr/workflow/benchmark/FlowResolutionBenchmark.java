@@ -0,0 +1,81 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.process.flow.CompiledFlow;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.task.TaskDelegate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of a step and of its successor in a compiled flow, the lookup done by the processor after each task
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowResolutionBenchmark {
+    @Param({"3", "30"})
+    private int flowSize;
+
+    private FlowEntity flowEntity;
+    private CompiledFlow flow;
+    private int order;
+
+    @Setup
+    public void setUp() {
+        TaskDelegate delegate = new NoopTask();
+        List<FlowTaskEntity> flowTasks = new ArrayList<>();
+        flowEntity = new FlowEntity(null, "benchmark-flow", flowTasks);
+
+        for (int i = 1; i <= flowSize; i++) {
+            FlowTaskEntity flowTask = new FlowTaskEntity();
+            flowTask.setFlow(flowEntity);
+            TaskEntity task = new TaskEntity();
+            task.setId((long) i);
+            task.setName("Task" + i);
+            flowTask.setTask(task);
+            flowTask.setAllowToFail(false);
+            flowTask.setTaskOrder(i);
+            flowTasks.add(flowTask);
+        }
+
+        flow = CompiledFlow.compile(flowEntity, taskName -> delegate);
+    }
+
+    @Benchmark
+    public Optional<CompiledFlowTask> nextByOrder() {
+        // Walk the whole flow, as the steps of a process do
+        order = order % flowSize + 1;
+        return flow.getStep(order).flatMap(CompiledFlowTask::getNext);
+    }
+
+    @Benchmark
+    public Optional<CompiledFlowTask> stepByTaskName() {
+        order = order % flowSize + 1;
+        return flow.getStep("Task" + order);
+    }
+
+    @Benchmark
+    public CompiledFlow compile() {
+        return CompiledFlow.compile(flowEntity, taskName -> null);
+    }
+}
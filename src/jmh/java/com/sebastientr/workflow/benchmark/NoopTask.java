@@ -0,0 +1,26 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.task.TaskDelegate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Task doing nothing, so that only the engine is measured.
+ * The future set by {@link #expectExecution()} is completed when the task is executed.
+ */
+@Component
+public class NoopTask extends TaskDelegate {
+    private volatile CompletableFuture<Void> executed = CompletableFuture.completedFuture(null);
+
+    public CompletableFuture<Void> expectExecution() {
+        executed = new CompletableFuture<>();
+        return executed;
+    }
+
+    @Override
+    public void execute(ContextEntity context) {
+        executed.complete(null);
+    }
+}
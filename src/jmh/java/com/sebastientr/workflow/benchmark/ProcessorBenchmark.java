@@ -0,0 +1,47 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.process.WorkflowEngineProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One step of a process, from the loaded process to the committed transition, for a task doing nothing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ProcessorBenchmark {
+    private WorkflowEngineProcessor workflowEngineProcessor;
+    private ProcessEntity process;
+
+    @Setup(Level.Trial)
+    public void setUp(EngineState engine) {
+        workflowEngineProcessor = engine.getBean(WorkflowEngineProcessor.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void newProcess(EngineState engine) {
+        process = engine.newProcess();
+    }
+
+    @Benchmark
+    public ProcessEntity execute(EngineState engine) {
+        workflowEngineProcessor.execute(engine.step, process);
+        return process;
+    }
+}
@@ -0,0 +1,76 @@
+package com.sebastientr.workflow.benchmark;
+
+import com.sebastientr.workflow.exception.WorkflowEngineConfigurationException;
+import com.sebastientr.workflow.helper.TaskClassLoader;
+import com.sebastientr.workflow.task.TaskDelegate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of a task delegate by its name, as configured in the task table
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskClassLoaderBenchmark {
+    @Param({"10", "200"})
+    private int taskCount;
+
+    private AnnotationConfigApplicationContext applicationContext;
+    private TaskClassLoader taskClassLoader;
+    private String[] taskNames;
+    private String[] lowerCaseTaskNames;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        applicationContext = new AnnotationConfigApplicationContext();
+        taskNames = new String[taskCount];
+        lowerCaseTaskNames = new String[taskCount];
+
+        for (int i = 0; i < taskCount; i++) {
+            applicationContext.registerBean("task" + i, NoopTask.class);
+            // Task names are not required to match the case of the bean names
+            taskNames[i] = "Task" + i;
+            lowerCaseTaskNames[i] = taskNames[i].toLowerCase(Locale.ROOT);
+        }
+
+        applicationContext.registerBean(TaskClassLoader.class);
+        applicationContext.refresh();
+        taskClassLoader = applicationContext.getBean(TaskClassLoader.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public TaskDelegate getClassByName() throws WorkflowEngineConfigurationException {
+        index = (index + 1) % taskCount;
+        return taskClassLoader.getClass(taskNames[index]);
+    }
+
+    @Benchmark
+    public TaskDelegate getClassByLowerCaseName() throws WorkflowEngineConfigurationException {
+        index = (index + 1) % taskCount;
+        return taskClassLoader.getClass(lowerCaseTaskNames[index]);
+    }
+}
@@ -1,12 +1,20 @@
 package com.sebastientr.workflow.configuration;
 
 import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.NonNull;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 
@@ -14,6 +22,7 @@ import java.util.Optional;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 @EnableJpaAuditing
 public class WorkflowEngineConfiguration {
     @Bean
@@ -21,6 +30,29 @@ public class WorkflowEngineConfiguration {
         return new AuditorAwareImpl();
     }
 
+    /**
+     * Enable JDBC batching so a task transition is written in as few round trips as possible.
+     * IN clause parameters are padded, so batch queries of various sizes share a few statements.
+     * Values already set by the application are kept.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer workflowEngineHibernatePropertiesCustomizer(@Value("${workflow-engine.persistence.jdbc-batch-size:50}") Integer jdbcBatchSize) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, jdbcBatchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            properties.putIfAbsent(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, true);
+        };
+    }
+
+    /**
+     * Engine metrics, registered to the application meter registry when there is one
+     */
+    @Bean
+    public WorkflowEngineMetrics workflowEngineMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        return new WorkflowEngineMetrics(meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
     static class AuditorAwareImpl implements AuditorAware<String> {
         @Override
         public @NonNull Optional<String> getCurrentAuditor() {
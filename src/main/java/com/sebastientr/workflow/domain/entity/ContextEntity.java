@@ -14,7 +14,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Getter
@@ -33,6 +37,38 @@ public class ContextEntity extends EditorAuditableEntity {
     @OneToOne(mappedBy = "context")
     private ProcessEntity process;
 
+    /**
+     * Variables of the process, stored in a single JSON column of the context table.
+     * Values must be serializable to JSON : strings, numbers, booleans, lists and maps of them.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Object> variables;
+
+    /**
+     * Get a variable of the process
+     *
+     * @param name variable name
+     * @return the variable value, null if it is not set
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getVariable(String name) {
+        return variables == null ? null : (T) variables.get(name);
+    }
+
+    /**
+     * Set a variable of the process, the context is only written if one of its variables or attributes changed
+     *
+     * @param name  variable name
+     * @param value variable value
+     */
+    public void setVariable(String name, Object value) {
+        if (variables == null) {
+            variables = new HashMap<>();
+        }
+
+        variables.put(name, value);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,78 @@
+package com.sebastientr.workflow.domain.entity;
+
+import com.sebastientr.workflow.domain.AuditableEntity;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A task to start, written in the same transaction as the state change that requires it.
+ * The row is deleted by the transaction that runs the task.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "workflow_outbox_event", indexes = {
+        @Index(name = "idx_workflow_outbox_event_available_at", columnList = "availableAt"),
+        @Index(name = "idx_workflow_outbox_event_process_id", columnList = "processId")
+})
+public class OutboxEventEntity extends AuditableEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID processId;
+
+    @Column(nullable = false)
+    private String flowName;
+
+    @Column(nullable = false)
+    private Integer taskOrder;
+
+    /**
+     * The event cannot be dispatched before this date
+     */
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    /**
+     * Node that dispatches the event, the event is dispatched again by another node if this one is not alive anymore
+     */
+    private String owner;
+
+    /**
+     * The event is being dispatched until this date, it is dispatched again afterward if still present
+     */
+    private LocalDateTime lockedUntil;
+
+    /**
+     * Priority of the process, copied so that the dispatchers publish the event without loading the process
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Integer priority = WorkflowEngineConstant.DEFAULT_PRIORITY;
+
+    public OutboxEventEntity(UUID processId, String flowName, Integer taskOrder, LocalDateTime availableAt, LocalDateTime lockedUntil) {
+        this.processId = processId;
+        this.flowName = flowName;
+        this.taskOrder = taskOrder;
+        this.availableAt = availableAt;
+        this.lockedUntil = lockedUntil;
+    }
+}
@@ -1,6 +1,7 @@
 package com.sebastientr.workflow.domain.entity;
 
 import com.sebastientr.workflow.domain.EditorAuditableEntity;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.CascadeType;
@@ -12,10 +13,12 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -30,7 +33,11 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "workflow_process")
+@Table(name = "workflow_process", indexes = {
+        @Index(name = "idx_workflow_process_flow_name_created_at", columnList = "flowName, createdAt, id"),
+        @Index(name = "idx_workflow_process_status_created_at", columnList = "status, createdAt, id"),
+        @Index(name = "idx_workflow_process_created_at", columnList = "createdAt, id")
+})
 public class ProcessEntity extends EditorAuditableEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -52,6 +59,25 @@ public class ProcessEntity extends EditorAuditableEntity {
     @Column(nullable = false)
     private Integer taskErrorCount;
 
+    /**
+     * Branches of the running parallel group that are not done yet
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Integer pendingBranchCount;
+
+    /**
+     * Priority of the steps of the process in the queue of the workers, the higher the sooner
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private Integer priority = WorkflowEngineConstant.DEFAULT_PRIORITY;
+
+    /**
+     * Node that ran the last step of the process
+     */
+    private String owner;
+
     @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY, mappedBy = "process", orphanRemoval = true)
     @JsonManagedReference
     private List<TaskInstanceEntity> taskInstances = new ArrayList<>();
@@ -70,5 +96,6 @@ public class ProcessEntity extends EditorAuditableEntity {
         this.taskTotalCount = size;
         this.taskSuccessCount = 0;
         this.taskErrorCount = 0;
+        this.pendingBranchCount = 0;
     }
 }
@@ -11,6 +11,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -26,7 +27,9 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "workflow_task_instance")
+@Table(name = "workflow_task_instance", indexes = {
+        @Index(name = "idx_workflow_task_instance_process_id_created_at", columnList = "process_id, createdAt")
+})
 public class TaskInstanceEntity extends EditorAuditableEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
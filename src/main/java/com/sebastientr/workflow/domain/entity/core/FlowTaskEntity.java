@@ -42,4 +42,57 @@ public class FlowTaskEntity {
     private Integer taskOrder;
 
     private Boolean enabled = true;
+
+    /**
+     * Flow tasks sharing the same parallel group, with consecutive orders, run concurrently.
+     * The flow continues with the following flow task once all of them are done.
+     */
+    private Integer parallelGroup;
+
+    /**
+     * Maximum duration of the task in milliseconds, null for no limit.
+     * Once expired, the worker running the task is interrupted and the task instance ends with ERROR.
+     */
+    private Long timeoutMs;
+
+    /**
+     * Delay before the task starts in milliseconds, null for none. When {@link #delayUntil} is set, offset added to its date, may be negative.
+     */
+    private Long delayMs;
+
+    /**
+     * Name of the context variable holding the ISO-8601 date and time before which the task does not start, null for none
+     */
+    private String delayUntil;
+
+    /**
+     * Maximum attempts of the task, including the first one. Null or 1 for no automatic retry.
+     */
+    private Integer retryMaxAttempts;
+
+    /**
+     * Delay before the first retry in milliseconds, 1000 by default
+     */
+    private Long retryDelayMs;
+
+    /**
+     * Factor applied to the delay after each retry, 2 by default
+     */
+    private Double retryMultiplier;
+
+    /**
+     * Upper bound of the delay in milliseconds, null for no bound
+     */
+    private Long retryMaxDelayMs;
+
+    /**
+     * Random part of each delay, from 0 (none, by default) to 1 (the delay is anywhere between 0 and twice its value)
+     */
+    private Double retryJitter;
+
+    /**
+     * Comma separated class names of the exceptions to retry, their subclasses and the failures they caused are retried too.
+     * Null to retry any failure.
+     */
+    private String retryOn;
 }
@@ -28,4 +28,34 @@ public class TaskEntity {
 
     @Column(columnDefinition = "TEXT")
     private String description;
+
+    /**
+     * Maximum number of steps of this task running at once on a node, no limit if null
+     */
+    @Column(name = "max_concurrency")
+    private Integer maxConcurrency;
+
+    /**
+     * Maximum number of steps of this task started per second on a node, no limit if null
+     */
+    @Column(name = "rate_per_second")
+    private Double ratePerSecond;
+
+    /**
+     * Number of steps that may start at once before the rate applies, defaults to one second worth of steps
+     */
+    @Column(name = "rate_burst")
+    private Integer rateBurst;
+
+    /**
+     * Maximum number of steps run in a single call by a batch task, {@code workflow-engine.batch.max-size} if null
+     */
+    @Column(name = "batch_max_size")
+    private Integer batchMaxSize;
+
+    /**
+     * Time a batch task waits for more steps once it has one, {@code workflow-engine.batch.linger-ms} if null
+     */
+    @Column(name = "batch_linger_ms")
+    private Long batchLingerMs;
 }
@@ -1,11 +1,27 @@
 package com.sebastientr.workflow.domain.repository;
 
 import com.sebastientr.workflow.domain.entity.ContextEntity;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Map;
 import java.util.UUID;
 
 @Repository
 public interface ContextRepository extends JpaRepository<ContextEntity, UUID> {
+    interface ContextVariables {
+        Map<String, Object> getVariables();
+    }
+
+    /**
+     * Read the variables of a context as written in the database, null if it has none.
+     * Nothing is flushed before, so the pending changes of the current transaction are not read back.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("SELECT context.variables AS variables FROM ContextEntity context WHERE context.id = :id")
+    ContextVariables findVariablesById(@Param("id") UUID id);
 }
@@ -0,0 +1,19 @@
+package com.sebastientr.workflow.domain.repository;
+
+import com.sebastientr.workflow.domain.entity.NodeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface NodeRepository extends JpaRepository<NodeEntity, String> {
+    @Modifying
+    @Query("UPDATE NodeEntity node SET node.heartbeatAt = :now WHERE node.id = :id")
+    int heartbeat(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM NodeEntity node WHERE node.heartbeatAt < :before")
+    int deleteByHeartbeatAtBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,57 @@
+package com.sebastientr.workflow.domain.repository;
+
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, UUID> {
+    /**
+     * Lock the events due for dispatch : not leased, lease expired, or leased by a node that stopped its heartbeat.
+     * Rows locked by another transaction are skipped (SKIP LOCKED when the database supports it)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT event FROM OutboxEventEntity event WHERE event.availableAt <= :now AND (event.lockedUntil IS NULL OR event.lockedUntil < :now " +
+            "OR (event.owner IS NOT NULL AND event.owner NOT IN (SELECT node.id FROM NodeEntity node WHERE node.heartbeatAt >= :aliveSince))) " +
+            "ORDER BY event.availableAt")
+    List<OutboxEventEntity> findDueForUpdate(@Param("now") LocalDateTime now, @Param("aliveSince") LocalDateTime aliveSince, Limit limit);
+
+    @Query("SELECT event.id FROM OutboxEventEntity event WHERE event.id IN :ids")
+    List<UUID> findIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity event WHERE event.id = :id")
+    int deleteEventById(@Param("id") UUID id);
+
+    /**
+     * End the lease of the given events, the dispatchers of every node may claim them from the given date
+     */
+    @Modifying
+    @Query("UPDATE OutboxEventEntity event SET event.owner = NULL, event.lockedUntil = NULL, event.availableAt = :availableAt WHERE event.id IN :ids")
+    int releaseByIdIn(@Param("ids") Collection<UUID> ids, @Param("availableAt") LocalDateTime availableAt);
+
+    /**
+     * Drop the events of the processes with the given status in the (from, to] id range owned by the given node
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity event WHERE event.processId IN (SELECT process.id FROM ProcessEntity process " +
+            "WHERE process.id > :from AND process.id <= :to AND process.owner = :owner AND process.status = :status)")
+    int deleteByProcessRange(@Param("from") UUID from, @Param("to") UUID to, @Param("owner") String owner, @Param("status") ProcessStatus status);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEventEntity event WHERE event.processId IN :processIds")
+    int deleteByProcessIdIn(@Param("processIds") Collection<UUID> processIds);
+}
@@ -1,22 +1,169 @@
 package com.sebastientr.workflow.domain.repository;
 
 import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface ProcessRepository extends JpaRepository<ProcessEntity, UUID> {
+public interface ProcessRepository extends JpaRepository<ProcessEntity, UUID>, ProcessSearchRepository {
+    interface ProcessReference {
+        UUID getId();
+
+        String getFlowName();
+
+        Integer getPriority();
+    }
+
+    interface ProcessBranchState {
+        ProcessStatus getStatus();
+
+        Integer getTaskSuccessCount();
+
+        Integer getTaskErrorCount();
+
+        Integer getPendingBranchCount();
+    }
+
     @Query("SELECT process FROM ProcessEntity process LEFT JOIN FETCH process.taskInstances taskInstances LEFT JOIN FETCH process.context context WHERE process.id = :uuid ORDER BY taskInstances.createdAt")
     Optional<ProcessEntity> findByIdOrderByTaskInstancesCreatedAt(@Param("uuid") UUID uuid);
 
+    /**
+     * Summary of a process, read from the process row only
+     */
+    @Query("SELECT new com.sebastientr.workflow.dto.ProcessSummaryDTO(process.id, process.flowName, process.status, process.taskTotalCount, " +
+            "process.taskSuccessCount, process.taskErrorCount, process.pendingBranchCount, process.createdAt, process.updatedAt) FROM ProcessEntity process WHERE process.id = :id")
+    Optional<ProcessSummaryDTO> findSummaryById(@Param("id") UUID id);
+
+    /**
+     * Summaries of processes, read from the process rows only
+     */
+    @Query("SELECT new com.sebastientr.workflow.dto.ProcessSummaryDTO(process.id, process.flowName, process.status, process.taskTotalCount, " +
+            "process.taskSuccessCount, process.taskErrorCount, process.pendingBranchCount, process.createdAt, process.updatedAt) FROM ProcessEntity process WHERE process.id IN :ids")
+    List<ProcessSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<UUID> ids);
+
     @Query("SELECT process FROM ProcessEntity process LEFT JOIN FETCH process.taskInstances taskInstances LEFT JOIN FETCH process.context context WHERE process.status = :status ORDER BY taskInstances.createdAt")
     List<ProcessEntity> findAllByStatus(@Param("status") ProcessStatus status);
 
+    /**
+     * Lock the process and read the state shared by the branches of a parallel group.
+     * Nothing is flushed before, so the pending changes of the current transaction do not overwrite the other branches ones.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "org.hibernate.flushMode", value = "COMMIT"))
+    @Query("SELECT process.status AS status, process.taskSuccessCount AS taskSuccessCount, process.taskErrorCount AS taskErrorCount, " +
+            "process.pendingBranchCount AS pendingBranchCount FROM ProcessEntity process WHERE process.id = :id")
+    ProcessBranchState lockBranchState(@Param("id") UUID id);
+
+    /**
+     * Ids of the processes with the given status, in id order, after the given id
+     */
+    @Query("SELECT process.id FROM ProcessEntity process WHERE process.status = :status AND process.id > :after ORDER BY process.id")
+    List<UUID> findIdsByStatusAfter(@Param("status") ProcessStatus status, @Param("after") UUID after, Limit limit);
+
+    /**
+     * Take the ownership of the processes with the given status in the (from, to] id range, unless another alive node owns them
+     */
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.owner = :self WHERE process.id > :from AND process.id <= :to AND process.status = :status " +
+            "AND (process.owner IS NULL OR process.owner NOT IN (SELECT node.id FROM NodeEntity node WHERE node.heartbeatAt >= :aliveSince AND node.id <> :self))")
+    int claimRange(@Param("from") UUID from, @Param("to") UUID to, @Param("status") ProcessStatus status, @Param("self") String self, @Param("aliveSince") LocalDateTime aliveSince);
+
+    /**
+     * End the owned IN_PROGRESS processes of the (from, to] id range whose IN_PROGRESS task instances all have one of the given names,
+     * counting that task as an error
+     */
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.status = :status, process.taskErrorCount = process.taskErrorCount + 1, process.updatedAt = :now " +
+            "WHERE process.id > :from AND process.id <= :to AND process.owner = :self AND process.flowName = :flowName " +
+            "AND process.status = com.sebastientr.workflow.dto.enumeration.ProcessStatus.IN_PROGRESS " +
+            "AND EXISTS (SELECT taskInstance.id FROM TaskInstanceEntity taskInstance WHERE taskInstance.process = process " +
+            "AND taskInstance.status = com.sebastientr.workflow.dto.enumeration.TaskStatus.IN_PROGRESS AND taskInstance.taskName IN :taskNames) " +
+            "AND NOT EXISTS (SELECT taskInstance.id FROM TaskInstanceEntity taskInstance WHERE taskInstance.process = process " +
+            "AND taskInstance.status = com.sebastientr.workflow.dto.enumeration.TaskStatus.IN_PROGRESS AND taskInstance.taskName NOT IN :taskNames)")
+    int endInProgressRangeWithTask(@Param("from") UUID from, @Param("to") UUID to, @Param("self") String self, @Param("flowName") String flowName,
+                                   @Param("taskNames") Collection<String> taskNames, @Param("status") ProcessStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * End the owned IN_PROGRESS processes of a flow in the (from, to] id range having any IN_PROGRESS task instance, counting that task as an error
+     */
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.status = :status, process.taskErrorCount = process.taskErrorCount + 1, process.updatedAt = :now " +
+            "WHERE process.id > :from AND process.id <= :to AND process.owner = :self AND process.flowName = :flowName " +
+            "AND process.status = com.sebastientr.workflow.dto.enumeration.ProcessStatus.IN_PROGRESS " +
+            "AND EXISTS (SELECT taskInstance.id FROM TaskInstanceEntity taskInstance WHERE taskInstance.process = process " +
+            "AND taskInstance.status = com.sebastientr.workflow.dto.enumeration.TaskStatus.IN_PROGRESS)")
+    int endInProgressRangeWithAnyTask(@Param("from") UUID from, @Param("to") UUID to, @Param("self") String self, @Param("flowName") String flowName,
+                                      @Param("status") ProcessStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * End the owned IN_PROGRESS processes of a flow in the (from, to] id range
+     */
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.status = :status, process.updatedAt = :now " +
+            "WHERE process.id > :from AND process.id <= :to AND process.owner = :self AND process.flowName = :flowName " +
+            "AND process.status = com.sebastientr.workflow.dto.enumeration.ProcessStatus.IN_PROGRESS")
+    int endInProgressRange(@Param("from") UUID from, @Param("to") UUID to, @Param("self") String self, @Param("flowName") String flowName,
+                           @Param("status") ProcessStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Flows of the owned processes with the given status in the (from, to] id range
+     */
+    @Query("SELECT DISTINCT process.flowName FROM ProcessEntity process WHERE process.id > :from AND process.id <= :to AND process.owner = :self AND process.status = :status")
+    List<String> findFlowNamesOfRange(@Param("from") UUID from, @Param("to") UUID to, @Param("self") String self, @Param("status") ProcessStatus status);
+
+    /**
+     * Processes with one of the given statuses, not owned by another alive node and without any pending outbox event
+     */
+    @Query("SELECT process.id AS id, process.flowName AS flowName, process.priority AS priority FROM ProcessEntity process WHERE process.status IN :statuses " +
+            "AND (process.owner IS NULL OR process.owner NOT IN (SELECT node.id FROM NodeEntity node WHERE node.heartbeatAt >= :aliveSince AND node.id <> :self)) " +
+            "AND NOT EXISTS (SELECT event.id FROM OutboxEventEntity event WHERE event.processId = process.id)")
+    List<ProcessReference> findStalled(@Param("statuses") Collection<ProcessStatus> statuses, @Param("self") String self, @Param("aliveSince") LocalDateTime aliveSince, Limit limit);
+
+    /**
+     * Take the ownership of the given processes, unless another alive node took it meanwhile
+     */
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.owner = :self WHERE process.id IN :ids " +
+            "AND (process.owner IS NULL OR process.owner NOT IN (SELECT node.id FROM NodeEntity node WHERE node.heartbeatAt >= :aliveSince AND node.id <> :self))")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("self") String self, @Param("aliveSince") LocalDateTime aliveSince);
+
+    @Query("SELECT process.id FROM ProcessEntity process WHERE process.id IN :ids AND process.owner = :owner")
+    List<UUID> findIdsByIdInAndOwner(@Param("ids") Collection<UUID> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.pendingBranchCount = :count WHERE process.id IN :ids")
+    int updatePendingBranchCount(@Param("ids") Collection<UUID> ids, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE ProcessEntity process SET process.status = :status WHERE process.id IN :ids")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("status") ProcessStatus status);
+
     @Query("SELECT process FROM ProcessEntity process LEFT JOIN FETCH process.taskInstances taskInstances LEFT JOIN FETCH process.context context WHERE process.id IN :uuids ORDER BY taskInstances.createdAt")
     List<ProcessEntity> findByIdInOrderByTaskInstancesCreatedAt(@Param("uuids") List<UUID> uuids);
+
+    /**
+     * Lock a batch of the ended processes last updated before the given date, skipping the processes locked by another node
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT process.id FROM ProcessEntity process WHERE process.status IN :statuses AND process.pendingBranchCount = 0 " +
+            "AND process.createdAt < :before AND process.updatedAt < :before")
+    List<UUID> lockIdsEndedBefore(@Param("statuses") Collection<ProcessStatus> statuses, @Param("before") LocalDateTime before, Limit limit);
+
+    @Query("SELECT process.context.id FROM ProcessEntity process WHERE process.id IN :ids")
+    List<UUID> findContextIdsByIdIn(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,26 @@
+package com.sebastientr.workflow.domain.repository;
+
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface ProcessSearchRepository {
+    /**
+     * Summaries of the processes matching the given criteria, the most recent first.
+     * Only the criteria that are set are part of the query, so it can use the index matching them.
+     *
+     * @param flowName       flow name, may be null
+     * @param status         process status, may be null
+     * @param createdFrom    included lower bound of the creation date, may be null
+     * @param createdTo      excluded upper bound of the creation date, may be null
+     * @param afterCreatedAt creation date of the last process of the previous page, null for the first page
+     * @param afterId        id of the last process of the previous page, null for the first page
+     * @param limit          maximum number of processes
+     * @return process summaries ordered by creation date then id, descending
+     */
+    List<ProcessSummaryDTO> search(String flowName, ProcessStatus status, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                   LocalDateTime afterCreatedAt, UUID afterId, int limit);
+}
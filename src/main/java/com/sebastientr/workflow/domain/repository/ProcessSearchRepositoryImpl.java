@@ -0,0 +1,62 @@
+package com.sebastientr.workflow.domain.repository;
+
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+class ProcessSearchRepositoryImpl implements ProcessSearchRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProcessSummaryDTO> search(String flowName, ProcessStatus status, LocalDateTime createdFrom, LocalDateTime createdTo,
+                                          LocalDateTime afterCreatedAt, UUID afterId, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProcessSummaryDTO> query = builder.createQuery(ProcessSummaryDTO.class);
+        Root<ProcessEntity> process = query.from(ProcessEntity.class);
+        Path<LocalDateTime> createdAt = process.get("createdAt");
+        Path<UUID> id = process.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (flowName != null) {
+            predicates.add(builder.equal(process.get("flowName"), flowName));
+        }
+        if (status != null) {
+            predicates.add(builder.equal(process.get("status"), status));
+        }
+        if (createdFrom != null) {
+            predicates.add(builder.greaterThanOrEqualTo(createdAt, createdFrom));
+        }
+        if (createdTo != null) {
+            predicates.add(builder.lessThan(createdAt, createdTo));
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            // Keyset : the processes following the last one of the previous page
+            predicates.add(builder.or(
+                    builder.lessThan(createdAt, afterCreatedAt),
+                    builder.and(builder.equal(createdAt, afterCreatedAt), builder.lessThan(id, afterId))
+            ));
+        }
+
+        query.select(builder.construct(ProcessSummaryDTO.class, id, process.get("flowName"), process.get("status"),
+                        process.get("taskTotalCount"), process.get("taskSuccessCount"), process.get("taskErrorCount"),
+                        process.get("pendingBranchCount"), createdAt, process.get("updatedAt")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(builder.desc(createdAt), builder.desc(id));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -1,9 +1,45 @@
 package com.sebastientr.workflow.domain.repository;
 
 import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface TaskInstanceRepository extends JpaRepository<TaskInstanceEntity, UUID> {
+    interface TaskInstanceHistory {
+        UUID getProcessId();
+
+        UUID getId();
+
+        String getTaskName();
+
+        TaskStatus getStatus();
+    }
+
+    @Query("SELECT taskInstance.process.id AS processId, taskInstance.id AS id, taskInstance.taskName AS taskName, taskInstance.status AS status " +
+            "FROM TaskInstanceEntity taskInstance WHERE taskInstance.process.id IN :processIds ORDER BY taskInstance.createdAt")
+    List<TaskInstanceHistory> findHistoryByProcessIds(@Param("processIds") Collection<UUID> processIds);
+
+    @Modifying
+    @Query("UPDATE TaskInstanceEntity taskInstance SET taskInstance.status = :status WHERE taskInstance.id IN :ids")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("status") TaskStatus status);
+
+    /**
+     * Ids of the IN_PROGRESS task instances of the IN_PROGRESS processes of the (from, to] id range owned by the given node
+     */
+    @Query("SELECT taskInstance.id FROM TaskInstanceEntity taskInstance " +
+            "WHERE taskInstance.status = com.sebastientr.workflow.dto.enumeration.TaskStatus.IN_PROGRESS " +
+            "AND taskInstance.process.id > :from AND taskInstance.process.id <= :to AND taskInstance.process.owner = :owner " +
+            "AND taskInstance.process.status = com.sebastientr.workflow.dto.enumeration.ProcessStatus.IN_PROGRESS")
+    List<UUID> findInProgressIdsOfProcessRange(@Param("from") UUID from, @Param("to") UUID to, @Param("owner") String owner);
+
+    @Modifying
+    @Query("DELETE FROM TaskInstanceEntity taskInstance WHERE taskInstance.process.id IN :processIds")
+    int deleteByProcessIdIn(@Param("processIds") Collection<UUID> processIds);
 }
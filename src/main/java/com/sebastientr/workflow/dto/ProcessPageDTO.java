@@ -0,0 +1,20 @@
+package com.sebastientr.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of a process search, the most recent processes first
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessPageDTO {
+    private List<ProcessSummaryDTO> processes;
+
+    /**
+     * Cursor of the next page, null if this page is the last one
+     */
+    private String nextCursor;
+}
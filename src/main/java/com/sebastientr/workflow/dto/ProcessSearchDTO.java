@@ -0,0 +1,41 @@
+package com.sebastientr.workflow.dto;
+
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criteria of a process search, every criterion is optional
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessSearchDTO {
+    private String flowName;
+    private ProcessStatus status;
+
+    /**
+     * Included lower bound of the creation date
+     */
+    private LocalDateTime createdFrom;
+
+    /**
+     * Excluded upper bound of the creation date
+     */
+    private LocalDateTime createdTo;
+
+    /**
+     * Cursor of the page to read, the {@link ProcessPageDTO#getNextCursor()} of the previous page. Null for the first page.
+     */
+    private String cursor;
+
+    /**
+     * Maximum number of processes of the page, up to {@code workflow-engine.search.max-page-size}
+     */
+    private Integer limit;
+}
@@ -0,0 +1,25 @@
+package com.sebastientr.workflow.dto;
+
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Status and counters of a process, read without its task instances nor its context
+ */
+@Getter
+@AllArgsConstructor
+public class ProcessSummaryDTO {
+    private UUID id;
+    private String flowName;
+    private ProcessStatus status;
+    private Integer taskTotalCount;
+    private Integer taskSuccessCount;
+    private Integer taskErrorCount;
+    private Integer pendingBranchCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
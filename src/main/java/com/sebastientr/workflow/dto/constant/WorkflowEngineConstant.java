@@ -11,6 +11,7 @@ public class WorkflowEngineConstant {
 
     public static final String SYSTEM_USER = "System";
     public static final String LOGGER_PROCESS_ID_KEY = "processId";
+    public static final int DEFAULT_PRIORITY = 0;
 
     public static final List<ProcessStatus> OPEN_PROCESS_STATUS = List.of(
             ProcessStatus.INIT,
@@ -22,4 +23,10 @@ public class WorkflowEngineConstant {
             ProcessStatus.SUCCESS,
             ProcessStatus.WARNING
     );
+
+    public static final List<ProcessStatus> ENDED_PROCESS_STATUS = List.of(
+            ProcessStatus.SUCCESS,
+            ProcessStatus.WARNING,
+            ProcessStatus.ERROR
+    );
 }
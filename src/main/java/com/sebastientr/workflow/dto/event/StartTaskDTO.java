@@ -1,6 +1,7 @@
 package com.sebastientr.workflow.dto.event;
 
 import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -11,4 +12,23 @@ import java.util.UUID;
 public class StartTaskDTO {
     private FlowTaskEntity flowTask;
     private UUID processId;
+
+    /**
+     * True when the task is run inline by the worker that ran the previous task, the event is then only a notification
+     */
+    private boolean inline;
+
+    /**
+     * Id of the outbox event behind this start, null for inline tasks or when the outbox is disabled
+     */
+    private UUID outboxEventId;
+
+    /**
+     * Priority of the process, the step is queued for a worker with it
+     */
+    private int priority;
+
+    public StartTaskDTO(FlowTaskEntity flowTask, UUID processId) {
+        this(flowTask, processId, false, null, WorkflowEngineConstant.DEFAULT_PRIORITY);
+    }
 }
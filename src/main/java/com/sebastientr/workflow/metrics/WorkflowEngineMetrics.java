@@ -0,0 +1,132 @@
+package com.sebastientr.workflow.metrics;
+
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the engine hot path :
+ * - workflow.engine.task.execution : time spent in {@code TaskDelegate.execute}, by task and outcome
+ * - workflow.engine.task.queue.wait : time between the publication of a START_TASK event and its consumption, by task
+ * - workflow.engine.step.database : time spent by a step in its transaction outside of the task, by task
+ * - workflow.engine.process.started / workflow.engine.process.ended : processes started by flow, ended by flow and status
+ * - workflow.engine.process.running : processes being run by this node, including the ones waiting for an asynchronous task
+ * - workflow.engine.task.limiter.wait / workflow.engine.task.limiter.queued : time spent by the steps waiting for the
+ *   limits of their task, steps currently waiting, by task
+ * - workflow.engine.task.batch.size : steps run in a single call by the batch tasks, by task
+ */
+public class WorkflowEngineMetrics {
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger runningProcesses = new AtomicInteger();
+
+    public WorkflowEngineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("workflow.engine.process.running", runningProcesses, AtomicInteger::get)
+                .description("Processes being run by this node, including the ones waiting for an asynchronous task")
+                .register(meterRegistry);
+    }
+
+    public void recordTaskExecution(String taskName, TaskStatus status, long nanos) {
+        Timer.builder("workflow.engine.task.execution")
+                .description("Time spent in the task delegates")
+                .tag("task", taskName)
+                .tag("outcome", status.name())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueWait(String taskName, Duration wait) {
+        Timer.builder("workflow.engine.task.queue.wait")
+                .description("Time between the publication of a START_TASK event and its consumption")
+                .tag("task", taskName)
+                .register(meterRegistry)
+                .record(wait);
+    }
+
+    public void recordStepDatabase(String taskName, long nanos) {
+        Timer.builder("workflow.engine.step.database")
+                .description("Time spent by a step in its transaction outside of the task delegate")
+                .tag("task", taskName)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatchSize(String taskName, int size) {
+        DistributionSummary.builder("workflow.engine.task.batch.size")
+                .description("Steps run in a single call by the batch tasks")
+                .tag("task", taskName)
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    public Timer limiterWaitTimer(String taskName) {
+        return Timer.builder("workflow.engine.task.limiter.wait")
+                .description("Time spent by the steps waiting for the concurrency and rate limits of their task")
+                .tag("task", taskName)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param taskName task of the limiter
+     * @param queued   number of steps waiting for the limiter, read when the gauge is collected
+     */
+    public void limiterQueued(String taskName, Supplier<Number> queued) {
+        Gauge.builder("workflow.engine.task.limiter.queued", queued)
+                .description("Steps waiting for the concurrency and rate limits of their task")
+                .tag("task", taskName)
+                .register(meterRegistry);
+    }
+
+    public void processesStarted(String flowName, int count) {
+        Counter.builder("workflow.engine.process.started")
+                .description("Processes started")
+                .tag("flow", flowName)
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    public void processEnded(String flowName, ProcessStatus status) {
+        processesEnded(flowName, status, 1);
+    }
+
+    /**
+     * Count the processes ended at once by a set based statement, such as the startup recovery
+     */
+    public void processesEnded(String flowName, ProcessStatus status, int count) {
+        if (count == 0) {
+            return;
+        }
+
+        Counter.builder("workflow.engine.process.ended")
+                .description("Processes ended")
+                .tag("flow", flowName)
+                .tag("status", status.name())
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * Count a process running on this node, until {@link #processLeft()} is called
+     */
+    public void processEntered() {
+        runningProcesses.incrementAndGet();
+    }
+
+    public void processLeft() {
+        runningProcesses.decrementAndGet();
+    }
+
+    public int getRunningProcesses() {
+        return runningProcesses.get();
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -48,6 +50,7 @@ public class ConfigurationLoader {
 
     /**
      * Validate integrity of configured flows task orders
+     * The flow tasks of a parallel group must have consecutive orders
      *
      * @throws WorkflowEngineConfigurationException if flows task orders are not valid
      */
@@ -68,6 +71,19 @@ public class ConfigurationLoader {
                 throw new WorkflowEngineConfigurationException("Could not find flowTask with order %d for flow %s".formatted(i, flow.getName()));
             }
         }
+
+        Map<Integer, List<Integer>> groups = flow.getFlowTask().stream()
+                .filter(flowTask -> flowTask.getParallelGroup() != null)
+                .collect(Collectors.groupingBy(FlowTaskEntity::getParallelGroup, Collectors.mapping(FlowTaskEntity::getTaskOrder, Collectors.toList())));
+
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            int span = Collections.max(group.getValue()) - Collections.min(group.getValue()) + 1;
+
+            if (span != group.getValue().size()) {
+                throw new WorkflowEngineConfigurationException("The flowTasks of parallel group %d do not have consecutive orders for flow %s"
+                        .formatted(group.getKey(), flow.getName()));
+            }
+        }
     }
 
     /**
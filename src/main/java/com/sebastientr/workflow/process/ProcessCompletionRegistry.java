@@ -0,0 +1,136 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import com.sebastientr.workflow.dto.event.EndProcessDTO;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.queuing.WorkflowEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Callers waiting for the end of processes.
+ *
+ * Waiters are completed by the END_PROCESS events of this node. The processes that already ended when the waiter is registered
+ * are found by a single read, and the processes ending on another node by a check of all the awaited processes, in one query
+ * per chunk of {@code workflow-engine.bulk.chunk-size} ids, every {@code workflow-engine.completion.poll-interval-ms}.
+ */
+@Slf4j
+@Component
+public class ProcessCompletionRegistry {
+    private final ProcessRepository processRepository;
+    private final Map<UUID, Set<CompletableFuture<ProcessSummaryDTO>>> waiters = new ConcurrentHashMap<>();
+
+    @Value("${workflow-engine.bulk.chunk-size:1000}")
+    private Integer chunkSize;
+
+    public ProcessCompletionRegistry(ProcessRepository processRepository) {
+        this.processRepository = processRepository;
+    }
+
+    /**
+     * Wait for the end of a process
+     *
+     * @param processId process id
+     * @param timeout   maximum wait, the future then completes with a {@link java.util.concurrent.TimeoutException}
+     * @return future completed with the summary of the ended process
+     */
+    public CompletableFuture<ProcessSummaryDTO> await(UUID processId, Duration timeout) {
+        CompletableFuture<ProcessSummaryDTO> future = new CompletableFuture<>();
+
+        waiters.compute(processId, (id, futures) -> {
+            Set<CompletableFuture<ProcessSummaryDTO>> processWaiters = futures == null ? ConcurrentHashMap.newKeySet() : futures;
+            processWaiters.add(future);
+            return processWaiters;
+        });
+
+        // The caller sees the completion once the waiter is removed
+        CompletableFuture<ProcessSummaryDTO> completion = future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((summary, throwable) -> remove(processId, future));
+
+        // Registered first, so a process ending from now on is not missed
+        try {
+            ProcessSummaryDTO summary = processRepository.findSummaryById(processId)
+                    .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find process with id %s".formatted(processId)));
+
+            if (isEnded(summary)) {
+                future.complete(summary);
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+
+        return completion;
+    }
+
+    @EventListener(condition = "{event.type == T(com.sebastientr.workflow.queuing.WorkflowEvent.EventType).END_PROCESS}")
+    public void handleEndProcessEvent(WorkflowEvent<EndProcessDTO> event) {
+        UUID processId = event.getWhat().getProcessId();
+
+        if (waiters.containsKey(processId)) {
+            processRepository.findSummaryById(processId).ifPresent(this::complete);
+        }
+    }
+
+    /**
+     * Complete the waiters of the processes ended on another node
+     */
+    @Scheduled(fixedDelayString = "${workflow-engine.completion.poll-interval-ms:1000}")
+    public void completeEnded() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+
+        // Chunked, so the awaited ids never exceed the bind parameters limits of the database
+        List<UUID> processIds = List.copyOf(waiters.keySet());
+
+        for (int from = 0; from < processIds.size(); from += chunkSize) {
+            processRepository.findSummariesByIdIn(processIds.subList(from, Math.min(from + chunkSize, processIds.size()))).stream()
+                    .filter(ProcessCompletionRegistry::isEnded)
+                    .forEach(this::complete);
+        }
+    }
+
+    /**
+     * @return number of processes awaited
+     */
+    public int size() {
+        return waiters.size();
+    }
+
+    private void complete(ProcessSummaryDTO summary) {
+        Set<CompletableFuture<ProcessSummaryDTO>> futures = waiters.remove(summary.getId());
+
+        if (futures != null) {
+            log.debug("Process {} ended, completing {} waiters", summary.getId(), futures.size());
+            futures.forEach(future -> future.complete(summary));
+        }
+    }
+
+    private void remove(UUID processId, CompletableFuture<ProcessSummaryDTO> future) {
+        waiters.computeIfPresent(processId, (id, futures) -> {
+            futures.remove(future);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+
+    /**
+     * A failed branch sets the ERROR status before the other branches of its group are done, the process ends at their join
+     */
+    private static boolean isEnded(ProcessSummaryDTO summary) {
+        return WorkflowEngineConstant.ENDED_PROCESS_STATUS.contains(summary.getStatus()) && summary.getPendingBranchCount() == 0;
+    }
+}
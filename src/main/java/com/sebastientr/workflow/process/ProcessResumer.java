@@ -0,0 +1,220 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository.ProcessReference;
+import com.sebastientr.workflow.domain.repository.TaskInstanceRepository;
+import com.sebastientr.workflow.domain.repository.TaskInstanceRepository.TaskInstanceHistory;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import com.sebastientr.workflow.process.flow.CompiledFlow;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.process.node.WorkflowEngineNode;
+import com.sebastientr.workflow.queuing.outbox.WorkflowOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Resume the processes that were interrupted between two steps, or during a step, by a stop of the node that ran them.
+ *
+ * Stalled processes (INIT or IN_PROGRESS, not owned by another alive node, without pending outbox event) are handled page by page.
+ * For each one, the next step is worked out from its task instance history and written to the outbox, the dispatchers then
+ * run them with the parallelism of the engine executor. A page is a handful of queries whatever its size.
+ */
+@Slf4j
+@Component
+public class ProcessResumer {
+    private static final List<ProcessStatus> STALLED_STATUS = List.of(ProcessStatus.INIT, ProcessStatus.IN_PROGRESS);
+
+    private final ProcessRepository processRepository;
+    private final TaskInstanceRepository taskInstanceRepository;
+    private final FlowRegistry flowRegistry;
+    private final WorkflowOutbox workflowOutbox;
+    private final WorkflowEngineNode workflowEngineNode;
+    private final TransactionExecutor transactionExecutor;
+    private final WorkflowEngineMetrics workflowEngineMetrics;
+
+    @Value("${workflow-engine.recovery.page-size:1000}")
+    private Integer pageSize;
+
+    public ProcessResumer(ProcessRepository processRepository, TaskInstanceRepository taskInstanceRepository, FlowRegistry flowRegistry, WorkflowOutbox workflowOutbox, WorkflowEngineNode workflowEngineNode, TransactionExecutor transactionExecutor,
+                           WorkflowEngineMetrics workflowEngineMetrics) {
+        this.processRepository = processRepository;
+        this.taskInstanceRepository = taskInstanceRepository;
+        this.flowRegistry = flowRegistry;
+        this.workflowOutbox = workflowOutbox;
+        this.workflowEngineNode = workflowEngineNode;
+        this.transactionExecutor = transactionExecutor;
+        this.workflowEngineMetrics = workflowEngineMetrics;
+    }
+
+    /**
+     * Resume every stalled process
+     *
+     * @return number of processes whose next step was enqueued
+     */
+    public int resumeStalledProcesses() {
+        if (!workflowOutbox.isEnabled()) {
+            log.warn("Processes cannot be resumed without the outbox, set workflow-engine.outbox.enabled to true");
+            return 0;
+        }
+
+        int resumed = 0;
+        Page page;
+
+        // Every handled process leaves the stalled ones (outbox event, final status or other owner), so the first page is always the next one
+        do {
+            page = transactionExecutor.withReturn(this::resumePage);
+            page.ended().forEach(ended -> workflowEngineMetrics.processEnded(ended.flowName(), ended.status()));
+            resumed += page.resumed();
+        } while (page.size() == pageSize);
+
+        return resumed;
+    }
+
+    private Page resumePage() {
+        List<ProcessReference> stalled = processRepository.findStalled(STALLED_STATUS, workflowEngineNode.getId(),
+                workflowEngineNode.getAliveSince(), Limit.of(pageSize));
+
+        if (stalled.isEmpty()) {
+            return new Page(0, 0, List.of());
+        }
+
+        List<UUID> ids = stalled.stream().map(ProcessReference::getId).toList();
+        processRepository.claim(ids, workflowEngineNode.getId(), workflowEngineNode.getAliveSince());
+        Set<UUID> owned = new HashSet<>(processRepository.findIdsByIdInAndOwner(ids, workflowEngineNode.getId()));
+
+        if (owned.isEmpty()) {
+            return new Page(stalled.size(), 0, List.of());
+        }
+
+        Map<UUID, List<TaskInstanceHistory>> histories = taskInstanceRepository.findHistoryByProcessIds(owned).stream()
+                .collect(Collectors.groupingBy(TaskInstanceHistory::getProcessId));
+
+        List<UUID> ended = new ArrayList<>();
+        // Processes with a failed task allowed to fail, they go on or end in WARNING as on the normal path
+        List<UUID> warned = new ArrayList<>();
+        List<UUID> failed = new ArrayList<>();
+        List<UUID> interrupted = new ArrayList<>();
+        // Processes entering a parallel group, by count of branches
+        Map<Integer, List<UUID>> forked = new HashMap<>();
+        // Processes ended by this page, the updates below only touch the owned processes
+        List<EndedProcess> endedProcesses = new ArrayList<>();
+        int resumed = 0;
+
+        for (ProcessReference process : stalled) {
+            if (!owned.contains(process.getId())) {
+                continue;
+            }
+
+            List<TaskInstanceHistory> history = histories.getOrDefault(process.getId(), List.of());
+
+            try {
+                // Several branches of a parallel group may have been interrupted
+                List<TaskInstanceHistory> inProgress = history.stream()
+                        .filter(taskInstance -> TaskStatus.IN_PROGRESS.equals(taskInstance.getStatus()))
+                        .toList();
+                inProgress.forEach(taskInstance -> interrupted.add(taskInstance.getId()));
+
+                List<CompiledFlowTask> next = nextSteps(flowRegistry.get(process.getFlowName()), history, inProgress);
+                boolean warning = history.stream().anyMatch(taskInstance -> TaskStatus.ERROR.equals(taskInstance.getStatus()));
+
+                if (warning) {
+                    warned.add(process.getId());
+                }
+
+                if (!next.isEmpty()) {
+                    next.forEach(step -> workflowOutbox.enqueueForDispatchers(step, process.getId(), process.getFlowName(), process.getPriority()));
+                    resumed++;
+
+                    if (inProgress.isEmpty() && next.get(0).isBranch()) {
+                        forked.computeIfAbsent(next.size(), count -> new ArrayList<>()).add(process.getId());
+                    }
+                } else if (!warning) {
+                    ended.add(process.getId());
+                    endedProcesses.add(new EndedProcess(process.getFlowName(), ProcessStatus.SUCCESS));
+                } else {
+                    endedProcesses.add(new EndedProcess(process.getFlowName(), ProcessStatus.WARNING));
+                }
+            } catch (WorkflowEngineRuntimeException e) {
+                log.error("Could not resume process {} : {}", process.getId(), e.getMessage());
+                failed.add(process.getId());
+                endedProcesses.add(new EndedProcess(process.getFlowName(), ProcessStatus.ERROR));
+            }
+        }
+
+        // The interrupted task instances are run again with a new instance
+        if (!interrupted.isEmpty()) {
+            taskInstanceRepository.updateStatus(interrupted, TaskStatus.RETRIED);
+        }
+
+        forked.forEach((count, processIds) -> processRepository.updatePendingBranchCount(processIds, count));
+
+        if (!ended.isEmpty()) {
+            processRepository.updateStatus(ended, ProcessStatus.SUCCESS);
+        }
+
+        if (!warned.isEmpty()) {
+            processRepository.updateStatus(warned, ProcessStatus.WARNING);
+        }
+
+        if (!failed.isEmpty()) {
+            processRepository.updateStatus(failed, ProcessStatus.ERROR);
+        }
+
+        log.info("Resumed {} processes, ended {}, warned {}, failed {}", resumed, ended.size(), warned.size(), failed.size());
+
+        return new Page(stalled.size(), resumed, endedProcesses);
+    }
+
+    /**
+     * Work out the steps to run from the task instance history
+     *
+     * @return the steps to run, empty if the flow is done
+     * @throws WorkflowEngineRuntimeException if the process cannot continue
+     */
+    private static List<CompiledFlowTask> nextSteps(CompiledFlow flow, List<TaskInstanceHistory> history, List<TaskInstanceHistory> inProgress) {
+        if (!inProgress.isEmpty()) {
+            return inProgress.stream().map(taskInstance -> getStep(flow, taskInstance.getTaskName())).toList();
+        }
+
+        if (history.isEmpty()) {
+            return flow.getFirst()
+                    .orElseThrow(() -> new WorkflowEngineRuntimeException("No enable flow task was found on flow %s".formatted(flow.getName())))
+                    .getBranches();
+        }
+
+        TaskInstanceHistory last = history.get(history.size() - 1);
+        CompiledFlowTask step = getStep(flow, last.getTaskName());
+
+        if (!TaskStatus.SUCCESS.equals(last.getStatus()) && !step.isAllowToFail()) {
+            throw new WorkflowEngineRuntimeException("Task %s ended with status %s".formatted(last.getTaskName(), last.getStatus()));
+        }
+
+        return step.getNext().map(CompiledFlowTask::getBranches).orElse(List.of());
+    }
+
+    private static CompiledFlowTask getStep(CompiledFlow flow, String taskName) {
+        return flow.getStep(taskName)
+                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find task [%s] on flow [%s]".formatted(taskName, flow.getName())));
+    }
+
+    private record Page(int size, int resumed, List<EndedProcess> ended) {
+    }
+
+    private record EndedProcess(String flowName, ProcessStatus status) {
+    }
+}
@@ -0,0 +1,145 @@
+package com.sebastientr.workflow.process;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.ContextRepository;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.domain.repository.TaskInstanceRepository;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Delete the ended processes (SUCCESS, WARNING or ERROR) last updated more than {@code workflow-engine.retention.max-age-days} ago,
+ * with their task instances, contexts and outbox events.
+ *
+ * A single batch of {@code workflow-engine.retention.batch-size} processes is deleted every {@code workflow-engine.retention.interval-ms},
+ * in its own short transaction, so the purge of a large backlog never holds the scheduler nor long locks. The processes of a batch
+ * are locked with SKIP LOCKED, several instances sharing the database purge distinct batches.
+ *
+ * When {@code workflow-engine.retention.archive-directory} is set, each batch is first written to a gzipped JSON lines file of this
+ * directory. The file is written before the deletion is committed, so a batch whose transaction fails is archived again by the next one.
+ */
+@Slf4j
+@Component
+public class ProcessRetention {
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final ProcessRepository processRepository;
+    private final TaskInstanceRepository taskInstanceRepository;
+    private final ContextRepository contextRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionExecutor transactionExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Value("${workflow-engine.retention.enabled:false}")
+    private Boolean enabled;
+
+    @Value("${workflow-engine.retention.max-age-days:30}")
+    private Integer maxAgeDays;
+
+    @Value("${workflow-engine.retention.batch-size:500}")
+    private Integer batchSize;
+
+    @Value("${workflow-engine.retention.archive-directory:}")
+    private String archiveDirectory;
+
+    public ProcessRetention(ProcessRepository processRepository, TaskInstanceRepository taskInstanceRepository, ContextRepository contextRepository, OutboxEventRepository outboxEventRepository, TransactionExecutor transactionExecutor) {
+        this.processRepository = processRepository;
+        this.taskInstanceRepository = taskInstanceRepository;
+        this.contextRepository = contextRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionExecutor = transactionExecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${workflow-engine.retention.interval-ms:1000}")
+    public void purge() {
+        if (Boolean.TRUE.equals(enabled)) {
+            purgeBatch();
+        }
+    }
+
+    /**
+     * Delete, and archive when configured, one batch of expired processes
+     *
+     * @return number of processes deleted
+     */
+    public int purgeBatch() {
+        LocalDateTime before = LocalDateTime.now().minusDays(maxAgeDays);
+
+        int deleted = transactionExecutor.withReturn(() -> {
+            List<UUID> ids = processRepository.lockIdsEndedBefore(WorkflowEngineConstant.ENDED_PROCESS_STATUS, before, Limit.of(batchSize));
+
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            if (!archiveDirectory.isBlank()) {
+                archive(ids);
+            }
+
+            List<UUID> contextIds = processRepository.findContextIdsByIdIn(ids);
+
+            outboxEventRepository.deleteByProcessIdIn(ids);
+            taskInstanceRepository.deleteByProcessIdIn(ids);
+            processRepository.deleteAllByIdInBatch(ids);
+            contextRepository.deleteAllByIdInBatch(contextIds);
+
+            return ids.size();
+        });
+
+        if (deleted > 0) {
+            log.info("Deleted {} processes ended before {}", deleted, before);
+        }
+
+        return deleted;
+    }
+
+    private void archive(List<UUID> ids) {
+        List<ProcessEntity> processes = processRepository.findByIdInOrderByTaskInstancesCreatedAt(ids);
+        Path directory = Path.of(archiveDirectory);
+        String name = "workflow-process-%s-%s.jsonl.gz".formatted(LocalDateTime.now().format(ARCHIVE_TIMESTAMP), ids.get(0));
+        Path file = directory.resolve(name);
+        Path tmp = directory.resolve(name + ".tmp");
+
+        try {
+            Files.createDirectories(directory);
+
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                for (ProcessEntity process : processes) {
+                    writer.write(objectMapper.writeValueAsString(process));
+                    writer.newLine();
+                }
+            }
+
+            // A file is only visible once complete
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new WorkflowEngineRuntimeException("Could not archive processes to %s : %s".formatted(file, e.getMessage()));
+        }
+
+        log.debug("Archived {} processes to {}", processes.size(), file);
+    }
+}
@@ -0,0 +1,103 @@
+package com.sebastientr.workflow.process;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interrupt the workers running a task for longer than its timeout.
+ *
+ * The cancellation is cooperative : a task blocked in an interruptible call (sleep, wait, lock, interruptible channel...) stops
+ * right away, any other task stops once it checks its interrupted flag or returns. Either way its task instance ends with ERROR.
+ */
+@Slf4j
+@Component
+public class TaskWatchdog {
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public TaskWatchdog() {
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-engine-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most tasks end in time, their cancelled watches must not pile up in the queue
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Watch the current thread
+     *
+     * @param taskName  name of the task run by the current thread
+     * @param timeoutMs timeout in milliseconds, 0 for no timeout
+     * @return the watch, to close once the task returned
+     */
+    public Watch watch(String taskName, long timeoutMs) {
+        Watch watch = new Watch(Thread.currentThread(), taskName, timeoutMs);
+
+        if (timeoutMs > 0) {
+            watch.expiry = scheduler.schedule(watch::expire, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        return watch;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public static final class Watch implements AutoCloseable {
+        private final Thread thread;
+        private final String taskName;
+        private final long timeoutMs;
+        private ScheduledFuture<?> expiry;
+        private boolean closed;
+        private boolean expired;
+
+        private Watch(Thread thread, String taskName, long timeoutMs) {
+            this.thread = thread;
+            this.taskName = taskName;
+            this.timeoutMs = timeoutMs;
+        }
+
+        /**
+         * @return true if the task ran for longer than its timeout
+         */
+        public synchronized boolean isExpired() {
+            return expired;
+        }
+
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        private synchronized void expire() {
+            if (!closed) {
+                log.warn("Task {} timed out after {} ms, interrupting {}", taskName, timeoutMs, thread.getName());
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Stop watching, the interruption of an expired task is cleared so that the worker can write its end
+         */
+        @Override
+        public synchronized void close() {
+            closed = true;
+
+            if (expiry != null) {
+                expiry.cancel(false);
+            }
+
+            if (expired) {
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TransitionPersistence {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${workflow-engine.persistence.single-flush:true}")
+    private Boolean singleFlush;
+
+    /**
+     * Start a unit of work for a task transition of the given process. Must be called inside a transaction.
+     *
+     * @param process process on which the transition happens
+     * @return unit of work collecting the transition state changes
+     */
+    public TransitionUnitOfWork begin(ProcessEntity process) {
+        return new TransitionUnitOfWork(entityManager, Boolean.TRUE.equals(singleFlush), process);
+    }
+}
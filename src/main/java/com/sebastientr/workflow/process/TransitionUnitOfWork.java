@@ -0,0 +1,154 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Collect the state changes of one task transition (task instance, process, context).
+ *
+ * In single flush mode, the process graph is re-attached to the current transaction without any query,
+ * new entities are persisted with their final state and everything is written by the single (batched) flush
+ * of the surrounding transaction commit.
+ * Otherwise, every registered change is written through right away.
+ *
+ * In both modes the context is re-attached before the task runs, so it is only written if the task changed it.
+ */
+public class TransitionUnitOfWork {
+    private final EntityManager entityManager;
+    private final boolean singleFlush;
+    private final List<Object> newEntities = new ArrayList<>();
+
+    TransitionUnitOfWork(EntityManager entityManager, boolean singleFlush, ProcessEntity process) {
+        this.entityManager = entityManager;
+        this.singleFlush = singleFlush;
+
+        if (singleFlush) {
+            attach(process);
+        } else {
+            lock(entityManager.unwrap(Session.class), process.getContext());
+        }
+    }
+
+    /**
+     * Register an entity created during the transition
+     *
+     * @param entity new entity
+     */
+    public void registerNew(Object entity) {
+        if (singleFlush) {
+            newEntities.add(entity);
+        } else {
+            save(entity);
+        }
+    }
+
+    /**
+     * Register an entity updated during the transition
+     *
+     * @param entity updated entity
+     */
+    public void registerDirty(Object entity) {
+        if (!singleFlush) {
+            // An attached entity is written by the flush, if it changed
+            if (!entityManager.contains(entity)) {
+                save(entity);
+            }
+        } else if (newEntities.stream().noneMatch(e -> e == entity) && !entityManager.contains(entity)) {
+            entityManager.merge(entity);
+        }
+    }
+
+    /**
+     * Apply the variables changed by the transition since the context was re-attached over the given variables,
+     * read from the database, so the variables written meanwhile by a concurrent transition are kept.
+     *
+     * @param context   re-attached context
+     * @param variables current variables of the context in the database
+     */
+    public void mergeVariables(ContextEntity context, Map<String, Object> variables) {
+        Map<String, Object> loaded = Objects.requireNonNullElse(loadedVariables(context), Map.of());
+        Map<String, Object> changed = Objects.requireNonNullElse(context.getVariables(), Map.of());
+        Map<String, Object> merged = variables == null ? new HashMap<>() : new HashMap<>(variables);
+
+        changed.forEach((name, value) -> {
+            if (!loaded.containsKey(name) || !Objects.equals(loaded.get(name), value)) {
+                merged.put(name, value);
+            }
+        });
+        loaded.keySet().stream().filter(name -> !changed.containsKey(name)).forEach(merged::remove);
+
+        // Unchanged variables are written again only if another transition changed them
+        context.setVariables(merged);
+    }
+
+    /**
+     * Variables of the context when it was re-attached, as kept by the persistence context to detect its changes
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> loadedVariables(ContextEntity context) {
+        EntityEntry entry = entityManager.unwrap(SessionImplementor.class).getPersistenceContextInternal().getEntry(context);
+
+        // Not attached, all its variables are considered as changed
+        if (entry == null || entry.getLoadedState() == null) {
+            return null;
+        }
+
+        return (Map<String, Object>) entry.getLoadedState()[entry.getPersister().getEntityMetamodel().getPropertyIndex("variables")];
+    }
+
+    /**
+     * Persist the new entities with their final state, the whole transition is written when the transaction commits
+     */
+    public void complete() {
+        if (singleFlush) {
+            newEntities.forEach(entityManager::persist);
+            newEntities.clear();
+        }
+    }
+
+    /**
+     * Re-attach a detached process, its context and its task instances to the current persistence context.
+     * No query is issued, the current state is considered as the database state so only later changes are written.
+     *
+     * @param process process to attach
+     */
+    private void attach(ProcessEntity process) {
+        Session session = entityManager.unwrap(Session.class);
+
+        lock(session, process);
+        lock(session, process.getContext());
+
+        for (TaskInstanceEntity taskInstance : process.getTaskInstances()) {
+            lock(session, taskInstance);
+        }
+    }
+
+    private static void lock(Session session, Object entity) {
+        if (entity != null && !session.contains(entity)) {
+            session.lock(entity, LockMode.NONE);
+        }
+    }
+
+    /**
+     * Same semantic as a repository save : persist new entities, merge the others
+     */
+    private void save(Object entity) {
+        if (entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity) == null) {
+            entityManager.persist(entity);
+        } else {
+            entityManager.merge(entity);
+        }
+    }
+}
@@ -1,46 +1,97 @@
 package com.sebastientr.workflow.process;
 
+import com.sebastientr.workflow.domain.entity.ContextEntity;
 import com.sebastientr.workflow.domain.entity.ProcessEntity;
 import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
-import com.sebastientr.workflow.domain.entity.core.FlowEntity;
 import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
 import com.sebastientr.workflow.domain.repository.ContextRepository;
-import com.sebastientr.workflow.domain.repository.FlowRepository;
+import com.sebastientr.workflow.domain.repository.ContextRepository.ContextVariables;
 import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository.ProcessBranchState;
 import com.sebastientr.workflow.domain.repository.TaskInstanceRepository;
 import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
 import com.sebastientr.workflow.dto.enumeration.TaskStatus;
 import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
-import com.sebastientr.workflow.helper.TaskClassLoader;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import com.sebastientr.workflow.process.flow.CompiledFlow;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.process.node.WorkflowEngineNode;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiter;
+import com.sebastientr.workflow.queuing.outbox.OutboxTimer;
+import com.sebastientr.workflow.queuing.outbox.WorkflowOutbox;
 import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import com.sebastientr.workflow.task.AsyncTaskDelegate;
+import com.sebastientr.workflow.task.BatchTaskDelegate;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
 public class WorkflowEngineProcessor {
-    private final ContextRepository contextRepository;
     private final WorkflowEngineEventPublisher workflowEngineEventPublisher;
     private final TaskInstanceRepository taskInstanceRepository;
     private final ProcessRepository processRepository;
-    private final FlowRepository flowRepository;
+    private final ContextRepository contextRepository;
+    private final FlowRegistry flowRegistry;
     private final TransactionExecutor transactionExecutor;
-    private final TaskClassLoader taskClassLoader;
+    private final TransitionPersistence transitionPersistence;
+    private final WorkflowOutbox workflowOutbox;
+    private final WorkflowEngineNode workflowEngineNode;
+    private final WorkflowEngineMetrics workflowEngineMetrics;
+    private final TaskWatchdog taskWatchdog;
+    private final OutboxTimer outboxTimer;
+    private final WorkflowEngineExecutor workflowEngineExecutor;
+
+    @Value("${workflow-engine.chaining.enabled:false}")
+    private Boolean chainingEnabled;
+
+    @Value("${workflow-engine.chaining.max-steps:10}")
+    private Integer chainingMaxSteps;
 
-    public WorkflowEngineProcessor(WorkflowEngineEventPublisher workflowEngineEventPublisher, TaskInstanceRepository taskInstanceRepository, ProcessRepository processRepository, FlowRepository flowRepository, TransactionExecutor transactionExecutor, TaskClassLoader taskClassLoader,
-                                   ContextRepository contextRepository) {
+    @Value("${workflow-engine.chaining.time-slice-ms:200}")
+    private Long chainingTimeSliceMs;
+
+    @Value("${workflow-engine.recovery.page-size:1000}")
+    private Integer recoveryPageSize;
+
+    public WorkflowEngineProcessor(WorkflowEngineEventPublisher workflowEngineEventPublisher, TaskInstanceRepository taskInstanceRepository, ProcessRepository processRepository, ContextRepository contextRepository, FlowRegistry flowRegistry, TransactionExecutor transactionExecutor,
+                                   TransitionPersistence transitionPersistence, WorkflowOutbox workflowOutbox, WorkflowEngineNode workflowEngineNode, WorkflowEngineMetrics workflowEngineMetrics,
+                                   TaskWatchdog taskWatchdog, OutboxTimer outboxTimer, WorkflowEngineExecutor workflowEngineExecutor) {
         this.workflowEngineEventPublisher = workflowEngineEventPublisher;
         this.taskInstanceRepository = taskInstanceRepository;
         this.processRepository = processRepository;
-        this.flowRepository = flowRepository;
-        this.transactionExecutor = transactionExecutor;
-        this.taskClassLoader = taskClassLoader;
         this.contextRepository = contextRepository;
+        this.flowRegistry = flowRegistry;
+        this.transactionExecutor = transactionExecutor;
+        this.transitionPersistence = transitionPersistence;
+        this.workflowOutbox = workflowOutbox;
+        this.workflowEngineNode = workflowEngineNode;
+        this.workflowEngineMetrics = workflowEngineMetrics;
+        this.taskWatchdog = taskWatchdog;
+        this.outboxTimer = outboxTimer;
+        this.workflowEngineExecutor = workflowEngineExecutor;
     }
 
     /**
@@ -48,50 +99,456 @@ public class WorkflowEngineProcessor {
      * Update the process task instance and process
      * After the task is done, if SUCCESS or WARNING (when allow to fail) we continue the flow
      * If the given task was a retry, we do not continue the flow
+     * If the task failed and its retry policy allows another attempt, the same task is started again after the policy delay
      *
-     * @param flowTask flow task that describes the current step
+     * When chaining is enabled, the following steps are run right away on the same worker with the in-memory process,
+     * until the chain reaches its max steps or time slice, then the next step is published back to the queue.
+     *
+     * The branches of a parallel group are always published, so they run concurrently. The last branch to end joins them
+     * and continues the flow.
+     *
+     * An {@link AsyncTaskDelegate} releases the worker while it runs : its step is written and the flow continues on a worker
+     * once the task completes. It keeps the slot of its limiter until then. A {@link BatchTaskDelegate} started here runs
+     * for this process alone.
+     *
+     * @param step compiled flow task that describes the current step
      * @param process current process to execute
      */
-    public void execute(FlowTaskEntity flowTask, ProcessEntity process) {
-        log.info("Starting task {}", flowTask.getTask().getName());
+    public void execute(CompiledFlowTask step, ProcessEntity process) {
+        execute(step, process, null, TaskLimiter.Slot.unlimited());
+    }
 
-        AtomicReference<TaskInstanceEntity> taskInstance = new AtomicReference<>();
-        Optional<TaskInstanceEntity> existingTaskInstance = getExistingTaskInstance(process, flowTask.getTask().getName());
+    /**
+     * Execute the provided flowTask on a process, consuming the outbox event that started it
+     *
+     * @param step compiled flow task that describes the current step
+     * @param process current process to execute
+     * @param outboxEventId outbox event consumed by the first step, may be null
+     * @param slot slot of the limiter of the first step, kept by an asynchronous task until its step is written
+     */
+    public void execute(CompiledFlowTask step, ProcessEntity process, UUID outboxEventId, TaskLimiter.Slot slot) {
+        workflowEngineMetrics.processEntered();
+        run(step, process, newChain(), outboxEventId, null, slot);
+    }
 
-        // Do run the task instance inside a transaction executor
-        transactionExecutor.withoutReturn(() ->
-                runTaskInstance(flowTask, process, taskInstance, existingTaskInstance)
-        );
+    /**
+     * Execute a {@link BatchTaskDelegate} once for the steps of several processes, then write the step of each process
+     * and continue its flow, one after the other on this worker, as for a step run alone. A failure of the whole call
+     * fails every step. The steps whose outbox event was already consumed are left out of the call.
+     *
+     * @param steps          compiled flow tasks of the same batch task, one per process
+     * @param processes      processes to execute
+     * @param outboxEventIds outbox events consumed by the steps, may contain null
+     */
+    public void executeBatch(List<CompiledFlowTask> steps, List<ProcessEntity> processes, List<UUID> outboxEventIds) {
+        // A duplicate delivery of a consumed event must not call the bulk API again
+        Set<UUID> unconsumed = workflowOutbox.findUnconsumed(outboxEventIds);
+        List<Integer> indexes = IntStream.range(0, processes.size())
+                .filter(i -> outboxEventIds.get(i) == null || unconsumed.contains(outboxEventIds.get(i)))
+                .boxed().toList();
+
+        if (indexes.size() < processes.size()) {
+            log.info("{} steps of the batch were already consumed, they are left out", processes.size() - indexes.size());
+        }
 
-        workflowEngineEventPublisher.publishEndTaskEvent(flowTask, process, taskInstance.get());
+        if (indexes.isEmpty()) {
+            return;
+        }
 
-        if (existingTaskInstance.isEmpty()) {
-            next(flowTask, process, taskInstance.get().getStatus());
+        List<CompiledFlowTask> batchSteps = indexes.stream().map(steps::get).toList();
+        List<ProcessEntity> batchProcesses = indexes.stream().map(processes::get).toList();
+        batchProcesses.forEach(process -> workflowEngineMetrics.processEntered());
+
+        List<TaskResult> results = runBatch(batchSteps, batchProcesses);
+
+        // The steps are written on this worker : handed to the executor, a rejected one would call the bulk API again
+        for (int i = 0; i < indexes.size(); i++) {
+            resumeStep(batchSteps.get(i), batchProcesses.get(i), newChain(), outboxEventIds.get(indexes.get(i)), results.get(i), () -> { });
         }
     }
 
-    private void runTaskInstance(FlowTaskEntity flowTask, ProcessEntity process, AtomicReference<TaskInstanceEntity> taskInstance, Optional<TaskInstanceEntity> existingTaskInstance) {
-        taskInstance.set(newTaskInstance(flowTask, process));
+    /**
+     * Hand a step to a worker of the engine. A step rejected by the executor is left to the outbox dispatchers,
+     * it is never run by the calling thread.
+     *
+     * @return false if the executor rejected the step
+     */
+    private boolean resumeOnWorker(Runnable runnable, ProcessEntity process, UUID outboxEventId) {
+        if (workflowEngineExecutor.execute(runnable, process.getPriority())) {
+            return true;
+        }
+
+        workflowEngineMetrics.processLeft();
+
+        try {
+            transactionExecutor.withoutReturn(() -> workflowOutbox.release(Collections.singletonList(outboxEventId)));
+        } catch (RuntimeException e) {
+            // The event is published again once its lease is over
+            log.error("Could not release the rejected outbox event {} of process {}", outboxEventId, process.getId(), e);
+        }
+
+        return false;
+    }
+
+    private StepChain newChain() {
+        return Boolean.TRUE.equals(chainingEnabled) ? new StepChain(chainingMaxSteps, chainingTimeSliceMs) : StepChain.NONE;
+    }
+
+    /**
+     * Run the steps of the process until the flow leaves this worker, or a step waits for an asynchronous task.
+     * The process is counted as running on this node until then.
+     *
+     * @param completed result of the first step if it is an asynchronous task that completed, null to run it
+     * @param slot      slot of the limiter of the first step
+     */
+    private void run(CompiledFlowTask step, ProcessEntity process, StepChain chain, UUID outboxEventId, TaskResult completed, TaskLimiter.Slot slot) {
+        boolean suspended = false;
+
+        try {
+            CompiledFlowTask current = step;
+            UUID currentOutboxEventId = outboxEventId;
+            TaskResult currentCompleted = completed;
+
+            while (current != null) {
+                if (currentCompleted == null && current.isAsync()) {
+                    startAsyncStep(current, process, chain, currentOutboxEventId, slot.keep());
+                    suspended = true;
+                    return;
+                }
+
+                current = executeStep(current, process, chain, currentOutboxEventId, currentCompleted);
+                currentOutboxEventId = null;
+                currentCompleted = null;
+            }
+        } finally {
+            if (!suspended) {
+                workflowEngineMetrics.processLeft();
+            }
+        }
+    }
+
+    /**
+     * Start an asynchronous task and release the worker. Once the task completes, or its timeout expires, its step is
+     * written and the flow continues on a worker of the engine. The outbox event of the step is only consumed then :
+     * a task still running once the outbox lease is over may be started again by the dispatchers.
+     *
+     * @param freeSlot frees the slot of the limiter of the step once its completion is written, or left to the dispatchers
+     */
+    private void startAsyncStep(CompiledFlowTask step, ProcessEntity process, StepChain chain, UUID outboxEventId, Runnable freeSlot) {
+        log.info("Starting asynchronous task {}", step.getTaskName());
         LoggerContext.set(WorkflowEngineConstant.LOGGER_PROCESS_ID_KEY, process.getId().toString());
 
+        long taskStart = System.nanoTime();
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+
         try {
-            taskClassLoader.getClass(flowTask.getTask().getName()).execute(process.getContext());
-            updateTaskInstanceStatus(taskInstance.get(), TaskStatus.SUCCESS, null);
+            CompletionStage<?> stage = ((AsyncTaskDelegate) step.getDelegate()).executeAsync(process.getContext());
+            stage.whenComplete((result, failure) -> {
+                if (failure == null) {
+                    completion.complete(result);
+                } else {
+                    completion.completeExceptionally(failure);
+                }
+            });
+
+            if (step.getTimeoutMs() > 0) {
+                completion.orTimeout(step.getTimeoutMs(), TimeUnit.MILLISECONDS).whenComplete((result, failure) -> {
+                    // The late result of the task is ignored, it is cancelled when it allows it
+                    if (failure instanceof TimeoutException && stage instanceof Future<?> future) {
+                        future.cancel(true);
+                    }
+                });
+            }
         } catch (Exception | Error /* We do catch "Error" here as well */ e) {
-            log.error("Task [{}] failed with error message : [{}]", flowTask.getTask().getName(), e.getMessage());
-            updateTaskInstanceStatus(taskInstance.get(), TaskStatus.ERROR, e);
-            updateProcessStatusOnFail(process, flowTask.getAllowToFail());
+            completion.completeExceptionally(e);
+        }
+
+        // The completing thread may belong to a client library : the step is written on a worker of the engine,
+        // or left to the outbox dispatchers, which start the task again, when the executor is full
+        completion.whenCompleteAsync((result, failure) ->
+                resumeStep(step, process, chain, outboxEventId, new TaskResult(asyncFailure(step, failure), System.nanoTime() - taskStart), freeSlot),
+                runnable -> {
+                    if (!resumeOnWorker(runnable, process, outboxEventId)) {
+                        freeSlot.run();
+                    }
+                });
+    }
+
+    /**
+     * Write the step of a task that ran outside of its transaction, an asynchronous or a batch task, and continue the flow
+     *
+     * @param freeSlot frees the slot kept by the task, once its step is written
+     */
+    private void resumeStep(CompiledFlowTask step, ProcessEntity process, StepChain chain, UUID outboxEventId, TaskResult result, Runnable freeSlot) {
+        try {
+            run(step, process, chain, outboxEventId, result, TaskLimiter.Slot.unlimited());
+        } catch (RuntimeException e) {
+            // The outbox event was not consumed, the dispatchers start the step again once its lease is over
+            log.error("Could not complete the task {} of process {}", step.getTaskName(), process.getId(), e);
+        } finally {
+            freeSlot.run();
+        }
+    }
+
+    /**
+     * Run a batch task for several processes on this worker, which is interrupted once the timeout of the steps expires.
+     * Steps without timeout leave the batch without timeout.
+     *
+     * @return the result of each step
+     */
+    private List<TaskResult> runBatch(List<CompiledFlowTask> steps, List<ProcessEntity> processes) {
+        CompiledFlowTask first = steps.get(0);
+        long timeoutMs = steps.stream().anyMatch(step -> step.getTimeoutMs() == 0) ?
+                0 : steps.stream().mapToLong(CompiledFlowTask::getTimeoutMs).max().orElse(0);
+        List<ContextEntity> contexts = processes.stream().map(ProcessEntity::getContext).toList();
+
+        log.info("Starting task {} for a batch of {} processes", first.getTaskName(), processes.size());
+        workflowEngineMetrics.recordBatchSize(first.getTaskName(), processes.size());
+
+        long taskStart = System.nanoTime();
+
+        Throwable failure = null;
+        Map<Integer, Exception> failures = null;
+        TaskWatchdog.Watch watch = taskWatchdog.watch(first.getTaskName(), timeoutMs);
+
+        try {
+            failures = ((BatchTaskDelegate) first.getDelegate()).executeBatch(contexts);
+        } catch (Exception | Error /* We do catch "Error" here as well */ e) {
+            failure = e;
         } finally {
-            contextRepository.save(process.getContext());
+            watch.close();
+        }
+
+        if (watch.isExpired()) {
+            failure = timedOut(first, watch.getTimeoutMs());
+        }
+
+        long taskNanos = System.nanoTime() - taskStart;
+        List<TaskResult> results = new ArrayList<>(processes.size());
+
+        for (int i = 0; i < processes.size(); i++) {
+            results.add(new TaskResult(failure != null || failures == null ? failure : failures.get(i), taskNanos));
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the failure of an asynchronous task, null if it succeeded
+     */
+    private static Throwable asyncFailure(CompiledFlowTask step, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+
+        if (cause instanceof TimeoutException && step.getTimeoutMs() > 0) {
+            return timedOut(step, step.getTimeoutMs());
+        }
+
+        return cause;
+    }
+
+    /**
+     * Execute one step
+     *
+     * @param completed result of the task if it is an asynchronous task that completed, null to run the task
+     * @return the next step to run inline, null if the flow does not continue on this worker
+     */
+    private CompiledFlowTask executeStep(CompiledFlowTask step, ProcessEntity process, StepChain chain, UUID outboxEventId, TaskResult completed) {
+        log.info("Starting task {}", step.getTaskName());
+
+        Optional<TaskInstanceEntity> existingTaskInstance = getExistingTaskInstance(process, step.getTaskName());
+
+        // Do run the task instance inside a transaction executor
+        long start = System.nanoTime();
+        Transition transition = transactionExecutor.withReturn(() ->
+                runTaskInstance(step, process, existingTaskInstance, chain, outboxEventId, completed)
+        );
+
+        if (transition == null) {
+            log.info("Task {} of process {} was already started by another worker", step.getTaskName(), process.getId());
+            return null;
+        }
+
+        workflowEngineMetrics.recordStepDatabase(step.getTaskName(), System.nanoTime() - start - transition.taskNanos());
+
+        workflowEngineEventPublisher.publishEndTaskEvent(step.getFlowTask(), process, transition.taskInstance());
+
+        return publishTransition(process, transition);
+    }
+
+    /**
+     * Run the task and write the transition, including the outbox event of the next step, in the current transaction
+     *
+     * @return the transition, null if the outbox event was already consumed
+     */
+    private Transition runTaskInstance(CompiledFlowTask step, ProcessEntity process, Optional<TaskInstanceEntity> existingTaskInstance, StepChain chain, UUID outboxEventId, TaskResult completed) {
+        // Consume the event first : a concurrent delivery of the same event waits for this transaction, then stops here
+        if (!workflowOutbox.acknowledge(outboxEventId)) {
+            return null;
         }
 
-        if (existingTaskInstance.isPresent()) {
-            endRetried(existingTaskInstance.get(), taskInstance.get(), process);
+        TransitionUnitOfWork unitOfWork = transitionPersistence.begin(process);
+        process.setOwner(workflowEngineNode.getId());
+
+        TaskInstanceEntity taskInstance = newTaskInstance(step.getFlowTask(), process, unitOfWork);
+        LoggerContext.set(WorkflowEngineConstant.LOGGER_PROCESS_ID_KEY, process.getId().toString());
+
+        TaskResult result = completed == null ? runDelegate(step, process) : completed;
+        Throwable failure = result.failure();
+
+        // A failed attempt is retried later according to the retry policy of the step, the flow and the counters do not move meanwhile
+        int attempt = countAttempts(process, step.getTaskName());
+        boolean retried = failure != null && existingTaskInstance.isEmpty() && step.getRetryPolicy().isRetryable(attempt, failure);
+
+        if (failure == null) {
+            updateTaskInstanceStatus(taskInstance, TaskStatus.SUCCESS, null, unitOfWork);
+        } else if (retried) {
+            log.warn("Task [{}] failed on attempt {}/{} with error message : [{}]", step.getTaskName(), attempt, step.getRetryPolicy().getMaxAttempts(), failure.getMessage());
+            updateTaskInstanceStatus(taskInstance, TaskStatus.RETRIED, failure, unitOfWork);
         } else {
-            updateCounters(process, taskInstance.get().getStatus());
+            log.error("Task [{}] failed with error message : [{}]", step.getTaskName(), failure.getMessage());
+            updateTaskInstanceStatus(taskInstance, TaskStatus.ERROR, failure, unitOfWork);
+            updateProcessStatusOnFail(process, step.isAllowToFail(), unitOfWork);
         }
 
-        processRepository.save(process);
+        unitOfWork.registerDirty(process.getContext());
+
+        workflowEngineMetrics.recordTaskExecution(step.getTaskName(), taskInstance.getStatus(), result.nanos());
+
+        Transition transition;
+
+        if (retried) {
+            // The retried branch does not end, but the process row it writes must not overwrite the other branches ones
+            if (step.isBranch()) {
+                reloadBranchState(process, unitOfWork);
+            }
+
+            transition = retry(step, process, taskInstance, attempt);
+        } else if (existingTaskInstance.isPresent()) {
+            endRetried(existingTaskInstance.get(), taskInstance, process, unitOfWork);
+            transition = new Transition(taskInstance, Outcome.NONE);
+        } else {
+            if (step.isBranch()) {
+                reloadBranchState(process, unitOfWork);
+                endBranch(step, process, taskInstance, unitOfWork);
+            }
+
+            updateCounters(process, taskInstance.getStatus());
+            transition = next(step, process, taskInstance, chain);
+        }
+
+        unitOfWork.registerDirty(process);
+        unitOfWork.complete();
+
+        // The new task instance only has an id once the transition is written
+        existingTaskInstance.ifPresent(retriedTaskInstance -> log.info("Task instance {} with id {} retried with new id {}. Its final status is now {}",
+                retriedTaskInstance.getTaskName(),
+                retriedTaskInstance.getId(),
+                taskInstance.getId(),
+                taskInstance.getStatus()));
+
+        // An asynchronous task did not run in this transaction
+        return transition.withTaskNanos(completed == null ? result.nanos() : 0);
+    }
+
+    /**
+     * Run the task delegate on this worker, which is interrupted once the timeout of the step expires
+     *
+     * @return the failure of the task, if any, and its duration
+     */
+    private TaskResult runDelegate(CompiledFlowTask step, ProcessEntity process) {
+        long taskStart = System.nanoTime();
+
+        Throwable failure = null;
+        TaskWatchdog.Watch watch = taskWatchdog.watch(step.getTaskName(), step.getTimeoutMs());
+
+        try {
+            step.getDelegate().execute(process.getContext());
+        } catch (Exception | Error /* We do catch "Error" here as well */ e) {
+            failure = e;
+        } finally {
+            watch.close();
+        }
+
+        // A task running past its timeout fails, even if it ignored the interruption and returned
+        if (watch.isExpired()) {
+            failure = timedOut(step, watch.getTimeoutMs());
+        }
+
+        return new TaskResult(failure, System.nanoTime() - taskStart);
+    }
+
+    private static WorkflowEngineRuntimeException timedOut(CompiledFlowTask step, long timeoutMs) {
+        return new WorkflowEngineRuntimeException("Task %s timed out after %d ms".formatted(step.getTaskName(), timeoutMs));
+    }
+
+    /**
+     * Publish the events of a committed transition
+     *
+     * @return the next step to run inline, if any
+     */
+    private CompiledFlowTask publishTransition(ProcessEntity process, Transition transition) {
+        switch (transition.outcome()) {
+            case END -> {
+                workflowEngineMetrics.processEnded(process.getFlowName(), process.getStatus());
+                workflowEngineEventPublisher.publishEndProcessEvent(process);
+                log.info("== DONE WITH STATUS : [%s] ==".formatted(process.getStatus()));
+            }
+            case INLINE -> {
+                // The next task is run by this worker, listeners are still notified
+                CompiledFlowTask next = transition.next().get(0);
+                workflowEngineEventPublisher.publishInlineStartTaskEvent(next.getFlowTask(), process);
+                return next;
+            }
+            case DISPATCH, RETRY -> {
+                for (int i = 0; i < transition.next().size(); i++) {
+                    outboxTimer.publishWhenDue(transition.next().get(i), process.getId(), process.getPriority(), transition.outboxEventIds().get(i), transition.delaysMs().get(i));
+                }
+            }
+            case NONE -> {
+                // A manually retried task, or a branch waiting for the other ones, does not continue the flow
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The branches of a parallel group end concurrently : the process is locked and the state they share is reloaded
+     * before this branch writes the process, so the status, counters and context variables written by the other branches are kept.
+     *
+     * @param process    process to update
+     * @param unitOfWork current transition unit of work
+     */
+    private void reloadBranchState(ProcessEntity process, TransitionUnitOfWork unitOfWork) {
+        ProcessBranchState state = processRepository.lockBranchState(process.getId());
+
+        process.setStatus(ProcessStatus.INIT.equals(state.getStatus()) ? ProcessStatus.IN_PROGRESS : state.getStatus());
+        process.setTaskSuccessCount(state.getTaskSuccessCount());
+        process.setTaskErrorCount(state.getTaskErrorCount());
+        process.setPendingBranchCount(state.getPendingBranchCount());
+
+        // Only the variables changed by this branch are applied over the ones written by the other branches
+        ContextEntity context = process.getContext();
+        if (context != null) {
+            ContextVariables current = contextRepository.findVariablesById(context.getId());
+            unitOfWork.mergeVariables(context, current == null ? null : current.getVariables());
+        }
+    }
+
+    /**
+     * Apply the outcome of an ended branch over the reloaded state of its process
+     *
+     * @param step         current step, a branch
+     * @param process      process to update
+     * @param taskInstance task instance of the branch
+     * @param unitOfWork   current transition unit of work
+     */
+    private void endBranch(CompiledFlowTask step, ProcessEntity process, TaskInstanceEntity taskInstance, TransitionUnitOfWork unitOfWork) {
+        process.setPendingBranchCount(process.getPendingBranchCount() - 1);
+
+        if (TaskStatus.ERROR.equals(taskInstance.getStatus())) {
+            updateProcessStatusOnFail(process, step.isAllowToFail(), unitOfWork);
+        }
     }
 
     /**
@@ -114,9 +571,11 @@ public class WorkflowEngineProcessor {
      * @param existingTaskInstance existing task instance
      * @param taskInstance         new task instance
      * @param process              current process
+     * @param unitOfWork           current transition unit of work
      */
-    private void endRetried(TaskInstanceEntity existingTaskInstance, TaskInstanceEntity taskInstance, ProcessEntity process) {
-        taskInstanceRepository.save(existingTaskInstance);
+    private void endRetried(TaskInstanceEntity existingTaskInstance, TaskInstanceEntity taskInstance, ProcessEntity process, TransitionUnitOfWork unitOfWork) {
+        existingTaskInstance.setStatus(TaskStatus.RETRIED);
+        unitOfWork.registerDirty(existingTaskInstance);
 
         // If the process have all task instance in SUCCESS (or RETRIED), the process status is SUCCESS,
         // otherwise it is WARNING since we cannot retry an ERROR process.
@@ -130,12 +589,6 @@ public class WorkflowEngineProcessor {
             process.setTaskSuccessCount(process.getTaskSuccessCount() + 1);
             process.setTaskErrorCount(process.getTaskErrorCount() - 1);
         }
-
-        log.info("Task instance {} with id {} retried with new id {}. Its final status is now {}",
-                existingTaskInstance.getTaskName(),
-                existingTaskInstance.getId(),
-                taskInstance.getId(),
-                taskInstance.getStatus());
     }
 
     /**
@@ -150,7 +603,7 @@ public class WorkflowEngineProcessor {
     }
 
     /**
-     * If a task instance was already present with status ERROR, this existing one is set to status RETRIED and the new one is executed
+     * If a task instance was already present with status ERROR, this existing one will be set to status RETRIED and the new one is executed
      * then we do not continue the flow because it is a retry
      *
      * @param process current process
@@ -164,7 +617,6 @@ public class WorkflowEngineProcessor {
                 .findFirst()
                 .map(ti -> {
                     log.info("Retrying task {}", ti.getId());
-                    ti.setStatus(TaskStatus.RETRIED);
                     return ti;
                 });
     }
@@ -174,8 +626,9 @@ public class WorkflowEngineProcessor {
      *
      * @param taskInstance task instance to update
      * @param taskStatus new status
+     * @param unitOfWork current transition unit of work
      */
-    private void updateTaskInstanceStatus(TaskInstanceEntity taskInstance, TaskStatus taskStatus, Throwable throwable) {
+    private void updateTaskInstanceStatus(TaskInstanceEntity taskInstance, TaskStatus taskStatus, Throwable throwable, TransitionUnitOfWork unitOfWork) {
         taskInstance.setStatus(taskStatus);
 
         if (throwable != null) {
@@ -183,31 +636,107 @@ public class WorkflowEngineProcessor {
             taskInstance.setError(throwable.getMessage());
         }
 
-        taskInstanceRepository.save(taskInstance);
+        unitOfWork.registerDirty(taskInstance);
     }
 
     /**
      * End the task
-     * If the task is SUCCESS or allowedToFail
+     * If the task is a branch and other branches of its group are still running, we wait for them
+     * If the task is SUCCESS or allowedToFail (for the last branch : if no branch failed without being allowed to)
      *      If the flow is finished, we end the process
-     *      If the flow is not finished, we publish an event to start the next task
+     *      If the flow is not finished, we run the next task inline when the chain allows it, the current task is not limited
+     *      and the next one is not delayed, limited nor batched, otherwise we write an outbox event to start the next task,
+     *      or one per branch of the next parallel group
      * otherwise we finish the process
      *
-     * @param flowTask current flow tas
-     * @param process  process to continue
-     * @param status   last task status
-     */
-    private void next(FlowTaskEntity flowTask, ProcessEntity process, TaskStatus status) {
-        if (TaskStatus.SUCCESS.equals(status) || Boolean.TRUE.equals(flowTask.getAllowToFail())) {
-            getNextTask(flowTask).ifPresentOrElse(
-                    // If a next task is present in the flow, we publish a start event to execute it
-                    ft -> workflowEngineEventPublisher.publishStartTaskEvent(ft, process),
-                    // If no next task are found in the flow, we end the process
-                    () -> endProcess(process)
-            );
-        } else {
-            endProcess(process);
+     * @param step         current step
+     * @param process      process to continue
+     * @param taskInstance last task instance
+     * @param chain        current step chain
+     * @return the transition to publish once committed
+     */
+    private Transition next(CompiledFlowTask step, ProcessEntity process, TaskInstanceEntity taskInstance, StepChain chain) {
+        if (step.isBranch() && process.getPendingBranchCount() > 0) {
+            log.info("Task {} done, waiting for {} other branches", step.getTaskName(), process.getPendingBranchCount());
+            return new Transition(taskInstance, Outcome.NONE);
+        }
+
+        boolean continues = step.isBranch() ?
+                !ProcessStatus.ERROR.equals(process.getStatus()) :
+                TaskStatus.SUCCESS.equals(taskInstance.getStatus()) || step.isAllowToFail();
+
+        if (continues) {
+            Optional<CompiledFlowTask> nextStep = step.getNext();
+
+            if (nextStep.isEmpty()) {
+                // If no next task are found in the flow, we end the process
+                endProcess(process);
+                return new Transition(taskInstance, Outcome.END);
+            } else if (!step.isLimited() && !nextStep.get().isBranch() && !nextStep.get().isDelayed() && !nextStep.get().isLimited()
+                    && !nextStep.get().isBatch() && chain.tryNext()) {
+                // A limited step does not chain : the slot of its limiter is only held for the step itself
+                return new Transition(taskInstance, Outcome.INLINE, List.of(nextStep.get()), List.of());
+            } else {
+                return dispatch(nextStep.get(), process, taskInstance);
+            }
+        }
+
+        endProcess(process);
+        return new Transition(taskInstance, Outcome.END);
+    }
+
+    /**
+     * Write the outbox event starting the given step again once the delay of its retry policy is over
+     *
+     * @param step         current step
+     * @param process      current process
+     * @param taskInstance failed attempt
+     * @param attempt      number of the failed attempt
+     * @return the transition to publish once committed
+     */
+    private Transition retry(CompiledFlowTask step, ProcessEntity process, TaskInstanceEntity taskInstance, int attempt) {
+        long delayMs = step.getRetryPolicy().getDelayMs(attempt);
+        log.info("Retrying task {} of process {} in {} ms", step.getTaskName(), process.getId(), delayMs);
+
+        // Collections.singletonList accepts the null id returned when the outbox is disabled
+        UUID outboxEventId = workflowOutbox.enqueueLater(step, process, delayMs);
+
+        return new Transition(taskInstance, Outcome.RETRY, List.of(step), Collections.singletonList(outboxEventId), List.of(delayMs), 0);
+    }
+
+    /**
+     * @return number of the attempts of the given task on the process, including the current one
+     */
+    private static int countAttempts(ProcessEntity process, String taskName) {
+        return (int) process.getTaskInstances().stream()
+                .filter(ti -> ti.getTaskName().equals(taskName))
+                .count();
+    }
+
+    /**
+     * Write the outbox events starting the given step, or every branch of its parallel group
+     *
+     * @param step         next step
+     * @param process      current process
+     * @param taskInstance last task instance
+     * @return the transition to publish once committed
+     */
+    private Transition dispatch(CompiledFlowTask step, ProcessEntity process, TaskInstanceEntity taskInstance) {
+        List<CompiledFlowTask> branches = step.getBranches();
+
+        if (step.isBranch()) {
+            process.setPendingBranchCount(branches.size());
         }
+
+        List<Long> delaysMs = branches.stream().map(branch -> branch.getDelayMs(process.getContext())).toList();
+        List<UUID> outboxEventIds = new ArrayList<>(branches.size());
+
+        // A delayed step is parked in the outbox until it is due, the process waits without holding any worker
+        for (int i = 0; i < branches.size(); i++) {
+            outboxEventIds.add(workflowOutbox.enqueueLater(branches.get(i), process, delaysMs.get(i)));
+        }
+
+        return new Transition(taskInstance, Outcome.DISPATCH, branches, outboxEventIds, delaysMs, 0);
     }
 
     /**
@@ -216,11 +745,12 @@ public class WorkflowEngineProcessor {
      *
      * @param process process to update
      * @param allowToFail boolean, if true the process will be set to WARNING, otherwise ERROR
+     * @param unitOfWork current transition unit of work
      */
-    private void updateProcessStatusOnFail(ProcessEntity process, boolean allowToFail) {
+    private void updateProcessStatusOnFail(ProcessEntity process, boolean allowToFail, TransitionUnitOfWork unitOfWork) {
         if (WorkflowEngineConstant.OPEN_PROCESS_STATUS.contains(process.getStatus())) {
             process.setStatus(allowToFail ? ProcessStatus.WARNING : ProcessStatus.ERROR);
-            processRepository.save(process);
+            unitOfWork.registerDirty(process);
         }
     }
 
@@ -229,17 +759,19 @@ public class WorkflowEngineProcessor {
      *
      * @param flowTask current flow task
      * @param process  process tu update
+     * @param unitOfWork current transition unit of work
      * @return created task instance entity
      */
-    private TaskInstanceEntity newTaskInstance(FlowTaskEntity flowTask, ProcessEntity process) {
+    private TaskInstanceEntity newTaskInstance(FlowTaskEntity flowTask, ProcessEntity process, TransitionUnitOfWork unitOfWork) {
         TaskInstanceEntity taskInstance = new TaskInstanceEntity(process, flowTask.getTask(), TaskStatus.IN_PROGRESS);
-        process.getTaskInstances().add(taskInstanceRepository.save(taskInstance));
+        unitOfWork.registerNew(taskInstance);
+        process.getTaskInstances().add(taskInstance);
 
         if (ProcessStatus.INIT.equals(process.getStatus())) {
             process.setStatus(ProcessStatus.IN_PROGRESS);
         }
 
-        processRepository.save(process);
+        unitOfWork.registerDirty(process);
 
         return taskInstance;
     }
@@ -247,79 +779,144 @@ public class WorkflowEngineProcessor {
     /**
      * End the process. If the process was indeed IN_PROGRESS, the final status shall be SUCCESS
      * If we reach there without IN_PROGRESS status, it means an error has occurred before, the final status shall remain ERROR or WARNING
+     * The process is written with the rest of the transition.
      *
      * @param process process to update
      */
     private void endProcess(ProcessEntity process) {
         process.setStatus(ProcessStatus.IN_PROGRESS.equals(process.getStatus()) ? ProcessStatus.SUCCESS : process.getStatus());
-        processRepository.save(process);
-        workflowEngineEventPublisher.publishEndProcessEvent(process);
-        log.info("== DONE WITH STATUS : [%s] ==".formatted(process.getStatus()));
     }
 
     /**
-     * Get the next task according to the order
+     * On startup, update IN_PROGRESS process and taskInstance status to ERROR and/or WARNING
+     * If the IN_PROGRESS task set to error is allowed to fail, we set the process status to WARNING
+     * Processes owned by another alive node are left untouched.
      *
-     * @param flowTask current flow task
-     * @return an optional next task defined by the flow
+     * Processes are handled by ranges of ids, each range is a few set based statements per flow whatever its size.
      */
-    private static Optional<FlowTaskEntity> getNextTask(FlowTaskEntity flowTask) {
-        Optional<FlowTaskEntity> next =  flowTask.getFlow().getFlowTask().stream()
-                .filter(tf -> tf.getTaskOrder().equals(flowTask.getTaskOrder() + 1))
-                .findFirst();
-
-        if (next.isPresent() && next.get().getEnabled().equals(Boolean.FALSE))
-            return getNextTask(next.get());
+    public void endExistingTasksOnStartup() {
+        int total = 0;
+        UUID from = new UUID(0, 0);
+        List<UUID> page;
+
+        do {
+            page = processRepository.findIdsByStatusAfter(ProcessStatus.IN_PROGRESS, from, Limit.of(recoveryPageSize));
+
+            if (!page.isEmpty()) {
+                UUID to = page.get(page.size() - 1);
+                UUID after = from;
+                List<EndedProcesses> ended = transactionExecutor.withReturn(() -> endExistingTasksRange(after, to));
+                ended.forEach(processes -> workflowEngineMetrics.processesEnded(processes.flowName(), processes.status(), processes.count()));
+                total += page.size();
+                from = to;
+            }
+        } while (page.size() == recoveryPageSize);
 
-        return next;
+        if (total > 0) {
+            log.info("Found %d process IN_PROGRESS".formatted(total));
+        }
     }
 
     /**
-     * On startup, update IN_PROGRESS process and taskInstance status to ERROR and/or WARNING
-     * If the IN_PROGRESS task set to error is allowed to fail, we set the process status to WARNING
+     * End the IN_PROGRESS processes of the (from, to] id range, flow by flow
+     *
+     * @return the number of processes ended by flow and status
      */
-    public void endExistingTasksOnStartup() {
-        List<ProcessEntity> inProgressProcesses = processRepository.findAllByStatus(ProcessStatus.IN_PROGRESS);
+    private List<EndedProcesses> endExistingTasksRange(UUID from, UUID to) {
+        String self = workflowEngineNode.getId();
+        LocalDateTime now = LocalDateTime.now();
 
-        if (!inProgressProcesses.isEmpty()) {
-            log.info("Found %d process IN_PROGRESS".formatted(inProgressProcesses.size()));
+        processRepository.claimRange(from, to, ProcessStatus.IN_PROGRESS, self, workflowEngineNode.getAliveSince());
 
-            for (ProcessEntity process: inProgressProcesses) {
-                FlowEntity flow = flowRepository.findByNameOrderByTaskOrder(process.getFlowName())
-                        .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not load IN_PROGRESS process %s for flow %s".formatted(process.getId(), process.getFlowName())));
+        // Their pending steps must not be run anymore
+        workflowOutbox.discardInProgress(from, to);
 
-                process.setStatus(ProcessStatus.ERROR);
+        // Selected before the processes are ended, while they are still IN_PROGRESS
+        List<UUID> interrupted = taskInstanceRepository.findInProgressIdsOfProcessRange(from, to, self);
 
-                process.getTaskInstances().stream()
-                        .filter(taskInstance -> TaskStatus.IN_PROGRESS.equals(taskInstance.getStatus()))
-                        .findFirst()
-                        .ifPresent(taskInstance -> updateStatus(process, taskInstance, flow));
+        Map<String, Set<String>> allowedToFail = flowRegistry.getAll().stream()
+                .collect(Collectors.toMap(CompiledFlow::getName, flow -> flow.getSteps().stream()
+                        .filter(CompiledFlowTask::isAllowToFail)
+                        .map(CompiledFlowTask::getTaskName)
+                        .collect(Collectors.toSet())));
 
-                process.setTaskSuccessCount(process.getTaskSuccessCount() + 1);
+        List<EndedProcesses> ended = new ArrayList<>();
+
+        for (String flowName : processRepository.findFlowNamesOfRange(from, to, self, ProcessStatus.IN_PROGRESS)) {
+            Set<String> taskNames = allowedToFail.getOrDefault(flowName, Set.of());
+
+            if (!taskNames.isEmpty()) {
+                ended.add(new EndedProcesses(flowName, ProcessStatus.WARNING,
+                        processRepository.endInProgressRangeWithTask(from, to, self, flowName, taskNames, ProcessStatus.WARNING, now)));
             }
 
-            processRepository.saveAll(inProgressProcesses);
+            ended.add(new EndedProcesses(flowName, ProcessStatus.ERROR,
+                    processRepository.endInProgressRangeWithAnyTask(from, to, self, flowName, ProcessStatus.ERROR, now)
+                            + processRepository.endInProgressRange(from, to, self, flowName, ProcessStatus.ERROR, now)));
+        }
+
+        if (!interrupted.isEmpty()) {
+            taskInstanceRepository.updateStatus(interrupted, TaskStatus.ERROR);
         }
+
+        return ended;
+    }
+
+    private enum Outcome {
+        NONE, END, INLINE, DISPATCH, RETRY
     }
 
     /**
-     * Update taskInstance and process status
-     *
-     * @param process process to update status
-     * @param taskInstance task instance to update status
-     * @param flow flow to check if status shall be set to WARNING instead of ERROR
+     * Result of a committed step : what follows, when the next steps are dispatched their outbox events,
+     * the delays before they start and the time spent in the task delegate
      */
-    private void updateStatus(ProcessEntity process, TaskInstanceEntity taskInstance, FlowEntity flow) {
-        taskInstance.setStatus(TaskStatus.ERROR);
+    private record Transition(TaskInstanceEntity taskInstance, Outcome outcome, List<CompiledFlowTask> next, List<UUID> outboxEventIds, List<Long> delaysMs, long taskNanos) {
+        private Transition(TaskInstanceEntity taskInstance, Outcome outcome, List<CompiledFlowTask> next, List<UUID> outboxEventIds) {
+            this(taskInstance, outcome, next, outboxEventIds, List.of(), 0);
+        }
 
-        FlowTaskEntity flowTask = flow.getFlowTask().stream()
-                .filter(ft -> ft.getTask().getName().equals(taskInstance.getTaskName()))
-                .findFirst()
-                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not load IN_PROGRESS task %s".formatted(taskInstance.getTaskName())));
+        private Transition(TaskInstanceEntity taskInstance, Outcome outcome) {
+            this(taskInstance, outcome, List.of(), List.of());
+        }
+
+        private Transition withTaskNanos(long nanos) {
+            return new Transition(taskInstance, outcome, next, outboxEventIds, delaysMs, nanos);
+        }
+    }
+
+    /**
+     * Number of processes of a flow ended with the given status by a set based statement
+     */
+    private record EndedProcesses(String flowName, ProcessStatus status, int count) {
+    }
 
-        if (Boolean.TRUE.equals(flowTask.getAllowToFail()))
-            process.setStatus(ProcessStatus.WARNING);
+    /**
+     * Outcome of a task delegate : its failure, null if it succeeded, and its duration
+     */
+    private record TaskResult(Throwable failure, long nanos) {
+    }
 
-        taskInstanceRepository.save(taskInstance);
+    /**
+     * Budget of steps that a worker may run in a row for one process before yielding back to the queue
+     */
+    private static final class StepChain {
+        private static final StepChain NONE = new StepChain(1, 0);
+
+        private final long deadline;
+        private int remainingSteps;
+
+        private StepChain(int maxSteps, long timeSliceMs) {
+            this.remainingSteps = maxSteps - 1;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeSliceMs);
+        }
+
+        private boolean tryNext() {
+            if (remainingSteps <= 0 || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+
+            remainingSteps--;
+            return true;
+        }
     }
 }
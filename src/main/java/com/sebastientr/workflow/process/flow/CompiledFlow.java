@@ -0,0 +1,118 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.task.TaskDelegate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-memory model of a flow, built once from its {@link FlowEntity}.
+ * Steps are indexed by order and by task name, so resolving a step or its successor costs a single map lookup.
+ */
+public final class CompiledFlow {
+    private final FlowEntity flow;
+    private final Map<Integer, CompiledFlowTask> stepsByOrder;
+    private final Map<String, CompiledFlowTask> stepsByTaskName;
+    private final CompiledFlowTask first;
+    private final int size;
+
+    private CompiledFlow(FlowEntity flow, Map<Integer, CompiledFlowTask> stepsByOrder, Map<String, CompiledFlowTask> stepsByTaskName, CompiledFlowTask first) {
+        this.flow = flow;
+        this.stepsByOrder = Collections.unmodifiableMap(stepsByOrder);
+        this.stepsByTaskName = Collections.unmodifiableMap(stepsByTaskName);
+        this.first = first;
+        this.size = flow.getSize();
+    }
+
+    /**
+     * Compile a flow definition
+     *
+     * @param flow     flow entity with its flow tasks loaded
+     * @param resolver resolve a task delegate from a task name, may return null if the task could not be loaded
+     * @return compiled flow
+     */
+    public static CompiledFlow compile(FlowEntity flow, Function<String, TaskDelegate> resolver) {
+        List<FlowTaskEntity> flowTasks = flow.getFlowTask() == null ? List.of() : flow.getFlowTask().stream()
+                .sorted(Comparator.comparing(FlowTaskEntity::getTaskOrder).reversed())
+                .toList();
+
+        // Last order of each parallel group, every branch of a group continues with the step following it
+        Map<Integer, Integer> groupEnds = flowTasks.stream()
+                .filter(flowTask -> flowTask.getParallelGroup() != null)
+                .collect(Collectors.toMap(FlowTaskEntity::getParallelGroup, FlowTaskEntity::getTaskOrder, Math::max));
+
+        Map<Integer, CompiledFlowTask> stepsByOrder = new HashMap<>();
+        Map<String, CompiledFlowTask> stepsByTaskName = new HashMap<>();
+        // First enabled step from a given order
+        Map<Integer, CompiledFlowTask> enabledFrom = new HashMap<>();
+        Map<Integer, List<CompiledFlowTask>> branches = new HashMap<>();
+
+        // Steps are built from the last one to the first one, so the next enabled step is always known
+        for (FlowTaskEntity flowTask : flowTasks) {
+            Integer group = flowTask.getParallelGroup();
+            int end = group == null ? flowTask.getTaskOrder() : groupEnds.get(group);
+            List<CompiledFlowTask> groupBranches = group == null ? null : branches.computeIfAbsent(group, g -> new ArrayList<>());
+
+            CompiledFlowTask step = new CompiledFlowTask(flowTask, resolver.apply(flowTask.getTask().getName()), enabledFrom.get(end + 1), groupBranches);
+            stepsByOrder.put(flowTask.getTaskOrder(), step);
+            // A task used by several steps resolves to its first one
+            stepsByTaskName.put(step.getTaskName(), step);
+            enabledFrom.put(flowTask.getTaskOrder(), step.isEnabled() ? step : enabledFrom.get(flowTask.getTaskOrder() + 1));
+
+            if (groupBranches != null && step.isEnabled()) {
+                groupBranches.add(0, step);
+            }
+        }
+
+        CompiledFlowTask first = flowTasks.isEmpty() ? null : enabledFrom.get(flowTasks.get(flowTasks.size() - 1).getTaskOrder());
+
+        return new CompiledFlow(flow, stepsByOrder, stepsByTaskName, first);
+    }
+
+    public FlowEntity getFlow() {
+        return flow;
+    }
+
+    public String getName() {
+        return flow.getName();
+    }
+
+    /**
+     * @return count of enabled steps
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the first enabled step of the flow, if any. When it is a branch, its whole parallel group starts with it.
+     */
+    public Optional<CompiledFlowTask> getFirst() {
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * @return every step, enabled or not
+     */
+    public Collection<CompiledFlowTask> getSteps() {
+        return stepsByOrder.values();
+    }
+
+    public Optional<CompiledFlowTask> getStep(int taskOrder) {
+        return Optional.ofNullable(stepsByOrder.get(taskOrder));
+    }
+
+    public Optional<CompiledFlowTask> getStep(String taskName) {
+        return Optional.ofNullable(stepsByTaskName.get(taskName));
+    }
+}
@@ -0,0 +1,188 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.exception.WorkflowEngineConfigurationException;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiter;
+import com.sebastientr.workflow.task.AsyncTaskDelegate;
+import com.sebastientr.workflow.task.BatchTaskDelegate;
+import com.sebastientr.workflow.task.TaskDelegate;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable, pre-resolved view of a flow task.
+ * The next enabled step and the task delegate are resolved once when the flow is compiled.
+ */
+@Slf4j
+public final class CompiledFlowTask {
+    private final FlowTaskEntity flowTask;
+    private final TaskDelegate delegate;
+    private final CompiledFlowTask next;
+    private final List<CompiledFlowTask> branches;
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param branches enabled steps of the parallel group, filled while the flow is compiled, null if the step is not in a group
+     */
+    CompiledFlowTask(FlowTaskEntity flowTask, TaskDelegate delegate, CompiledFlowTask next, List<CompiledFlowTask> branches) {
+        this.flowTask = flowTask;
+        this.delegate = delegate;
+        this.next = next;
+        this.branches = branches == null ? List.of(this) : Collections.unmodifiableList(branches);
+        this.retryPolicy = RetryPolicy.of(flowTask);
+    }
+
+    public FlowTaskEntity getFlowTask() {
+        return flowTask;
+    }
+
+    public String getTaskName() {
+        return flowTask.getTask().getName();
+    }
+
+    public int getTaskOrder() {
+        return flowTask.getTaskOrder();
+    }
+
+    public boolean isAllowToFail() {
+        return Boolean.TRUE.equals(flowTask.getAllowToFail());
+    }
+
+    public boolean isEnabled() {
+        return !Boolean.FALSE.equals(flowTask.getEnabled());
+    }
+
+    /**
+     * @return maximum duration of the task in milliseconds, 0 if it has no limit
+     */
+    public long getTimeoutMs() {
+        return flowTask.getTimeoutMs() == null ? 0 : flowTask.getTimeoutMs();
+    }
+
+    /**
+     * @return true if the task waits before it starts
+     */
+    public boolean isDelayed() {
+        return flowTask.getDelayMs() != null || flowTask.getDelayUntil() != null;
+    }
+
+    /**
+     * @return true if the steps of the task wait for its concurrency or rate limits
+     */
+    public boolean isLimited() {
+        return TaskLimiter.isLimited(flowTask.getTask());
+    }
+
+    /**
+     * Get the time left before the task may start. A missing or invalid {@code delayUntil} variable does not delay the task.
+     *
+     * @param context context of the process reaching this step
+     * @return delay in milliseconds, 0 if the task starts right away
+     */
+    public long getDelayMs(ContextEntity context) {
+        if (!isDelayed()) {
+            return 0;
+        }
+
+        long offsetMs = flowTask.getDelayMs() == null ? 0 : flowTask.getDelayMs();
+
+        if (flowTask.getDelayUntil() == null) {
+            return Math.max(offsetMs, 0);
+        }
+
+        LocalDateTime until = parseDate(context == null ? null : context.getVariable(flowTask.getDelayUntil()));
+
+        if (until == null) {
+            log.warn("Context variable [{}] is not a date, task [{}] is not delayed", flowTask.getDelayUntil(), getTaskName());
+            return 0;
+        }
+
+        return Math.max(Duration.between(LocalDateTime.now(), until).toMillis() + offsetMs, 0);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return true if the step is a branch of a parallel group
+     */
+    public boolean isBranch() {
+        return flowTask.getParallelGroup() != null;
+    }
+
+    /**
+     * Get the steps to start when the flow reaches this step
+     *
+     * @return the enabled steps of its parallel group, or this step alone
+     */
+    public List<CompiledFlowTask> getBranches() {
+        return branches;
+    }
+
+    /**
+     * @return true if the task completes asynchronously, without holding a worker
+     */
+    public boolean isAsync() {
+        return delegate instanceof AsyncTaskDelegate;
+    }
+
+    /**
+     * @return true if the task runs the steps of several processes in a single call
+     */
+    public boolean isBatch() {
+        return delegate instanceof BatchTaskDelegate;
+    }
+
+    /**
+     * Get the task delegate resolved at compile time
+     *
+     * @return task delegate
+     * @throws WorkflowEngineConfigurationException if no delegate could be resolved for this task
+     */
+    public TaskDelegate getDelegate() throws WorkflowEngineConfigurationException {
+        if (delegate == null) {
+            throw new WorkflowEngineConfigurationException("Could not load task [%s]".formatted(getTaskName()));
+        }
+
+        return delegate;
+    }
+
+    /**
+     * Get the next enabled step of the flow, disabled steps are already skipped.
+     * The branches of a parallel group all continue with the step following the group.
+     *
+     * @return an optional next step
+     */
+    public Optional<CompiledFlowTask> getNext() {
+        return Optional.ofNullable(next);
+    }
+
+    /**
+     * @return the local date and time of an ISO-8601 date, with or without offset, null if the value is not one
+     */
+    private static LocalDateTime parseDate(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return LocalDateTime.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(value.toString()).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
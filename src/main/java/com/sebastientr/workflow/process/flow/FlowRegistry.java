@@ -0,0 +1,83 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.repository.FlowRepository;
+import com.sebastientr.workflow.exception.WorkflowEngineConfigurationException;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.helper.TaskClassLoader;
+import com.sebastientr.workflow.task.TaskDelegate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of compiled flows.
+ * Flows are compiled on startup and on explicit reload, a flow that is not known yet is compiled on its first use.
+ */
+@Slf4j
+@Component
+public class FlowRegistry {
+    private final FlowRepository flowRepository;
+    private final TaskClassLoader taskClassLoader;
+
+    private volatile Map<String, CompiledFlow> flows = new ConcurrentHashMap<>();
+
+    public FlowRegistry(FlowRepository flowRepository, TaskClassLoader taskClassLoader) {
+        this.flowRepository = flowRepository;
+        this.taskClassLoader = taskClassLoader;
+    }
+
+    /**
+     * Compile every configured flow and replace the cached ones
+     */
+    public void reload() {
+        Map<String, CompiledFlow> compiledFlows = new ConcurrentHashMap<>();
+
+        for (FlowEntity flow : flowRepository.findAll()) {
+            compiledFlows.put(flow.getName(), compile(flow));
+        }
+
+        flows = compiledFlows;
+        log.info("Compiled {} flow(s)", compiledFlows.size());
+    }
+
+    /**
+     * Get a compiled flow by its name
+     *
+     * @param flowName flow name
+     * @return compiled flow
+     * @throws WorkflowEngineRuntimeException if the flow does not exist
+     */
+    public CompiledFlow get(String flowName) {
+        CompiledFlow flow = flows.get(flowName);
+
+        if (flow == null) {
+            flow = flowRepository.findByNameOrderByTaskOrder(flowName)
+                    .map(this::compile)
+                    .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find flow %s".formatted(flowName)));
+            flows.put(flowName, flow);
+        }
+
+        return flow;
+    }
+
+    public Collection<CompiledFlow> getAll() {
+        return flows.values();
+    }
+
+    private CompiledFlow compile(FlowEntity flow) {
+        return CompiledFlow.compile(flow, this::resolveDelegate);
+    }
+
+    private TaskDelegate resolveDelegate(String taskName) {
+        try {
+            return taskClassLoader.getClass(taskName);
+        } catch (WorkflowEngineConfigurationException e) {
+            log.warn(e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Automatic retries of a flow task : up to a max number of attempts, after an exponential delay with an optional jitter,
+ * for the failures of the configured exception types.
+ */
+public final class RetryPolicy {
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 1, Long.MAX_VALUE, 0, Set.of());
+
+    private static final long DEFAULT_DELAY_MS = 1000;
+    private static final double DEFAULT_MULTIPLIER = 2;
+
+    private final int maxAttempts;
+    private final long delayMs;
+    private final double multiplier;
+    private final long maxDelayMs;
+    private final double jitter;
+    private final Set<String> retryOn;
+
+    private RetryPolicy(int maxAttempts, long delayMs, double multiplier, long maxDelayMs, double jitter, Set<String> retryOn) {
+        this.maxAttempts = maxAttempts;
+        this.delayMs = delayMs;
+        this.multiplier = multiplier;
+        this.maxDelayMs = maxDelayMs;
+        this.jitter = jitter;
+        this.retryOn = retryOn;
+    }
+
+    /**
+     * Read the retry policy of a flow task
+     *
+     * @param flowTask flow task
+     * @return its retry policy, {@link #NONE} if it is not retried
+     */
+    public static RetryPolicy of(FlowTaskEntity flowTask) {
+        if (flowTask.getRetryMaxAttempts() == null || flowTask.getRetryMaxAttempts() <= 1) {
+            return NONE;
+        }
+
+        Set<String> retryOn = flowTask.getRetryOn() == null ? Set.of() : Arrays.stream(flowTask.getRetryOn().split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+
+        return new RetryPolicy(
+                flowTask.getRetryMaxAttempts(),
+                flowTask.getRetryDelayMs() == null ? DEFAULT_DELAY_MS : Math.max(flowTask.getRetryDelayMs(), 0),
+                flowTask.getRetryMultiplier() == null ? DEFAULT_MULTIPLIER : Math.max(flowTask.getRetryMultiplier(), 1),
+                flowTask.getRetryMaxDelayMs() == null ? Long.MAX_VALUE : flowTask.getRetryMaxDelayMs(),
+                flowTask.getRetryJitter() == null ? 0 : Math.min(Math.max(flowTask.getRetryJitter(), 0), 1),
+                retryOn
+        );
+    }
+
+    /**
+     * @param attempt attempt that failed, from 1
+     * @param failure failure of the attempt
+     * @return true if the task shall be attempted again
+     */
+    public boolean isRetryable(int attempt, Throwable failure) {
+        return attempt < maxAttempts && (retryOn.isEmpty() || matches(failure));
+    }
+
+    /**
+     * @param attempt attempt that failed, from 1
+     * @return delay before the next attempt in milliseconds
+     */
+    public long getDelayMs(int attempt) {
+        double delay = Math.min(delayMs * Math.pow(multiplier, attempt - 1.0), maxDelayMs);
+
+        if (jitter > 0) {
+            delay *= 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        }
+
+        return Math.min((long) delay, maxDelayMs);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * The classes are compared by name, so that a policy never loads nor requires the classes it names
+     */
+    private boolean matches(Throwable failure) {
+        for (Throwable throwable = failure; throwable != null; throwable = throwable.getCause() == throwable ? null : throwable.getCause()) {
+            for (Class<?> type = throwable.getClass(); type != null; type = type.getSuperclass()) {
+                if (retryOn.contains(type.getName())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
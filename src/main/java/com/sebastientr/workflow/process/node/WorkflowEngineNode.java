@@ -0,0 +1,119 @@
+package com.sebastientr.workflow.process.node;
+
+import com.sebastientr.workflow.domain.entity.NodeEntity;
+import com.sebastientr.workflow.domain.repository.NodeRepository;
+import com.sebastientr.workflow.process.TransactionExecutor;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * This engine instance. Its heartbeat tells the other instances sharing the database that the work it owns
+ * (processes, leased outbox events) must not be taken over.
+ * <p>
+ * The node stops with the first lifecycle phase of the context, before the database is closed : from then on,
+ * the heartbeat and the outbox dispatch are skipped.
+ */
+@Slf4j
+@Component
+public class WorkflowEngineNode implements SmartLifecycle {
+    private final NodeRepository nodeRepository;
+    private final TransactionExecutor transactionExecutor;
+
+    @Value("${workflow-engine.node.id:}")
+    private String configuredId;
+
+    @Value("${workflow-engine.node.timeout-ms:30000}")
+    private Long timeoutMs;
+
+    @Getter
+    private String id;
+
+    private volatile boolean running;
+
+    public WorkflowEngineNode(NodeRepository nodeRepository, TransactionExecutor transactionExecutor) {
+        this.nodeRepository = nodeRepository;
+        this.transactionExecutor = transactionExecutor;
+    }
+
+    @PostConstruct
+    private void register() {
+        id = configuredId == null || configuredId.isBlank() ? generateId() : configuredId;
+
+        LocalDateTime now = LocalDateTime.now();
+        transactionExecutor.withoutReturn(() -> nodeRepository.save(new NodeEntity(id, now, now)));
+
+        log.info("Workflow engine node {} registered", id);
+    }
+
+    /**
+     * Keep this node alive and forget about the nodes that have been dead for long
+     */
+    @Scheduled(fixedDelayString = "${workflow-engine.node.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionExecutor.withoutReturn(() -> {
+            if (nodeRepository.heartbeat(id, now) == 0) {
+                nodeRepository.save(new NodeEntity(id, now, now));
+            }
+
+            nodeRepository.deleteByHeartbeatAtBefore(now.minus(timeoutMs * 10, ChronoUnit.MILLIS));
+        });
+    }
+
+    /**
+     * @return the date before which a heartbeat means the node is dead
+     */
+    public LocalDateTime getAliveSince() {
+        return LocalDateTime.now().minus(timeoutMs, ChronoUnit.MILLIS);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Leave the cluster, so the work still owned by this node is taken over without waiting for the timeout
+     */
+    @Override
+    public void stop() {
+        running = false;
+
+        try {
+            transactionExecutor.withoutReturn(() -> nodeRepository.deleteById(id));
+        } catch (RuntimeException e) {
+            log.warn("Could not unregister workflow engine node {} : {}", id, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static String generateId() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + suffix;
+        } catch (UnknownHostException e) {
+            return suffix;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.sebastientr.workflow.queuing.batch;
+
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.dto.event.StartTaskDTO;
+import com.sebastientr.workflow.queuing.WorkflowEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Gather the START_TASK events of the batch tasks, across processes, into micro batches.
+ * A batch is handed over once it reaches the max size of its task, or once its linger time is over : a single step
+ * waits at most the linger time. The events of a batch not handed over yet are still leased in the outbox.
+ */
+@Component
+public class TaskBatcher {
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Batch> batches = new HashMap<>();
+
+    @Value("${workflow-engine.batch.max-size:100}")
+    private Integer maxSize;
+
+    @Value("${workflow-engine.batch.linger-ms:20}")
+    private Long lingerMs;
+
+    public TaskBatcher() {
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-engine-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Add an event to the open batch of its task
+     *
+     * @param task  task of the event
+     * @param event START_TASK event
+     * @param flush called with the events of the batch once it is full or its linger time is over
+     */
+    public void add(TaskEntity task, WorkflowEvent<StartTaskDTO> event, Consumer<List<WorkflowEvent<StartTaskDTO>>> flush) {
+        int batchMaxSize = task.getBatchMaxSize() == null ? maxSize : Math.max(task.getBatchMaxSize(), 1);
+        long batchLingerMs = task.getBatchLingerMs() == null ? lingerMs : Math.max(task.getBatchLingerMs(), 0);
+        Batch full = null;
+
+        synchronized (batches) {
+            Batch batch = batches.computeIfAbsent(task.getName(), name -> new Batch(flush));
+            batch.events.add(event);
+
+            if (batch.events.size() >= batchMaxSize) {
+                batches.remove(task.getName());
+                if (batch.lingering != null) {
+                    batch.lingering.cancel(false);
+                }
+                full = batch;
+            } else if (batch.lingering == null) {
+                batch.lingering = timer.schedule(() -> flushLingering(task.getName(), batch), batchLingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            full.flush.accept(full.events);
+        }
+    }
+
+    /**
+     * @return number of events waiting in the open batches
+     */
+    public int size() {
+        synchronized (batches) {
+            return batches.values().stream().mapToInt(batch -> batch.events.size()).sum();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void flushLingering(String taskName, Batch batch) {
+        synchronized (batches) {
+            // The batch may have been handed over full meanwhile
+            if (!batches.remove(taskName, batch)) {
+                return;
+            }
+        }
+
+        batch.flush.accept(batch.events);
+    }
+
+    private static final class Batch {
+        private final List<WorkflowEvent<StartTaskDTO>> events = new ArrayList<>();
+        private final Consumer<List<WorkflowEvent<StartTaskDTO>>> flush;
+        private ScheduledFuture<?> lingering;
+
+        private Batch(Consumer<List<WorkflowEvent<StartTaskDTO>>> flush) {
+            this.flush = flush;
+        }
+    }
+}
@@ -1,37 +1,175 @@
 package com.sebastientr.workflow.queuing.consumer;
 
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
 import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import com.sebastientr.workflow.dto.event.StartTaskDTO;
 import com.sebastientr.workflow.exception.WorkflowEngineInvalidEventException;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import com.sebastientr.workflow.process.TransactionExecutor;
 import com.sebastientr.workflow.process.WorkflowEngineProcessor;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
 import com.sebastientr.workflow.queuing.WorkflowEvent;
+import com.sebastientr.workflow.queuing.batch.TaskBatcher;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiter;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiters;
+import com.sebastientr.workflow.queuing.outbox.WorkflowOutbox;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 @Slf4j
 @Component
 public class WorkflowEngineEventConsumer {
     private final ProcessRepository processRepository;
     private final WorkflowEngineProcessor workflowEngineProcessor;
+    private final FlowRegistry flowRegistry;
+    private final TaskLimiters taskLimiters;
+    private final TaskBatcher taskBatcher;
+    private final WorkflowEngineMetrics workflowEngineMetrics;
+    private final WorkflowOutbox workflowOutbox;
+    private final TransactionExecutor transactionExecutor;
 
     public WorkflowEngineEventConsumer(WorkflowEngineProcessor workflowEngineProcessor,
-                                       ProcessRepository processRepository) {
+                                       ProcessRepository processRepository,
+                                       FlowRegistry flowRegistry,
+                                       TaskLimiters taskLimiters,
+                                       TaskBatcher taskBatcher,
+                                       WorkflowEngineMetrics workflowEngineMetrics,
+                                       WorkflowOutbox workflowOutbox,
+                                       TransactionExecutor transactionExecutor) {
         this.workflowEngineProcessor = workflowEngineProcessor;
         this.processRepository = processRepository;
+        this.flowRegistry = flowRegistry;
+        this.taskLimiters = taskLimiters;
+        this.taskBatcher = taskBatcher;
+        this.workflowEngineMetrics = workflowEngineMetrics;
+        this.workflowOutbox = workflowOutbox;
+        this.transactionExecutor = transactionExecutor;
+    }
+
+    @EventListener(condition = "{event.type == T(com.sebastientr.workflow.queuing.WorkflowEvent.EventType).START_TASK && !event.what.inline}")
+    public void handleStartTaskEvent(WorkflowEvent<StartTaskDTO> event) {
+        var flowTask = event == null || event.getWhat() == null ? null : event.getWhat().getFlowTask();
+        TaskEntity task = flowTask == null ? null : flowTask.getTask();
+        int priority = event == null || event.getWhat() == null ? WorkflowEngineConstant.DEFAULT_PRIORITY : event.getWhat().getPriority();
+
+        // A batch counts as one step for the limits of its task, and is queued with the most urgent of its processes
+        CompiledFlowTask step = compiledStep(flowTask);
+        if (step != null && step.isBatch()) {
+            taskBatcher.add(task, event, events -> taskLimiters.execute(task, maxPriority(events), () -> startBatch(events), () -> rejected(events)));
+            return;
+        }
+
+        taskLimiters.execute(task, priority, slot -> {
+            try {
+                startTask(event, slot);
+            } catch (Exception e) {
+                log.error("Could not handle {} event", event == null ? null : event.getType(), e);
+            }
+        }, () -> rejected(event == null ? List.of() : List.of(event)));
+    }
+
+    /**
+     * @return the compiled step started by an event, null if it cannot be resolved : the event is then reported when the step runs
+     */
+    private CompiledFlowTask compiledStep(FlowTaskEntity flowTask) {
+        if (flowTask == null || flowTask.getFlow() == null || flowTask.getTaskOrder() == null) {
+            return null;
+        }
+
+        try {
+            return flowRegistry.get(flowTask.getFlow().getName()).getStep(flowTask.getTaskOrder()).orElse(null);
+        } catch (WorkflowEngineRuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Leave the steps rejected by their limiter or the executor to the outbox dispatchers
+     */
+    private void rejected(List<WorkflowEvent<StartTaskDTO>> events) {
+        List<UUID> outboxEventIds = events.stream().map(event -> event.getWhat().getOutboxEventId()).toList();
+
+        try {
+            transactionExecutor.withoutReturn(() -> workflowOutbox.release(outboxEventIds));
+        } catch (RuntimeException e) {
+            // The events are published again once their lease is over
+            log.error("Could not release {} rejected outbox events", outboxEventIds.size(), e);
+        }
+    }
+
+    private static int maxPriority(List<WorkflowEvent<StartTaskDTO>> events) {
+        return events.stream().mapToInt(event -> event.getWhat().getPriority()).max().orElse(WorkflowEngineConstant.DEFAULT_PRIORITY);
+    }
+
+    private void startTask(WorkflowEvent<StartTaskDTO> event, TaskLimiter.Slot slot) throws WorkflowEngineInvalidEventException {
+        Start start = resolve(event, System.currentTimeMillis());
+
+        workflowEngineProcessor.execute(start.step(), start.process(), start.outboxEventId(), slot);
+    }
+
+    /**
+     * Run the steps of a batch task in a single call, the events that cannot be resolved are left out of the batch
+     */
+    private void startBatch(List<WorkflowEvent<StartTaskDTO>> events) {
+        long consumedAt = System.currentTimeMillis();
+        List<CompiledFlowTask> steps = new ArrayList<>(events.size());
+        List<ProcessEntity> processes = new ArrayList<>(events.size());
+        List<UUID> outboxEventIds = new ArrayList<>(events.size());
+
+        for (WorkflowEvent<StartTaskDTO> event : events) {
+            try {
+                Start start = resolve(event, consumedAt);
+                steps.add(start.step());
+                processes.add(start.process());
+                outboxEventIds.add(start.outboxEventId());
+            } catch (Exception e) {
+                log.error("Could not handle {} event", event == null ? null : event.getType(), e);
+            }
+        }
+
+        if (processes.isEmpty()) {
+            return;
+        }
+
+        try {
+            workflowEngineProcessor.executeBatch(steps, processes, outboxEventIds);
+        } catch (Exception e) {
+            log.error("Could not handle a batch of {} {} events", processes.size(), WorkflowEvent.EventType.START_TASK, e);
+        }
     }
 
-    @Async
-    @EventListener(condition = "{event.type == T(com.sebastientr.workflow.queuing.WorkflowEvent.EventType).START_TASK}")
-    public void handleStartTaskEvent(WorkflowEvent<StartTaskDTO> event) throws WorkflowEngineInvalidEventException {
+    /**
+     * Load the process and the step started by an event
+     */
+    private Start resolve(WorkflowEvent<StartTaskDTO> event, long consumedAt) throws WorkflowEngineInvalidEventException {
         validateEvent(event);
 
         log.info("Received {} event", event.getType());
 
         var process = processRepository.findByIdOrderByTaskInstancesCreatedAt(event.getWhat().getProcessId()).orElseThrow();
+        int taskOrder = event.getWhat().getFlowTask().getTaskOrder();
+
+        CompiledFlowTask step = flowRegistry.get(process.getFlowName()).getStep(taskOrder)
+                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find task order %d on flow %s".formatted(taskOrder, process.getFlowName())));
+
+        // The event timestamp is set when it is published
+        workflowEngineMetrics.recordQueueWait(step.getTaskName(), Duration.ofMillis(consumedAt - event.getTimestamp()));
+
+        return new Start(step, process, event.getWhat().getOutboxEventId());
+    }
 
-        workflowEngineProcessor.execute(event.getWhat().getFlowTask(), process);
+    private record Start(CompiledFlowTask step, ProcessEntity process, UUID outboxEventId) {
     }
 
     /**
@@ -0,0 +1,73 @@
+package com.sebastientr.workflow.queuing.executor;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of the steps waiting for a worker, the most urgent first.
+ *
+ * A step is ranked by the time it was queued, brought forward by the aging time for each level of priority : a step of
+ * priority 2 queued now runs before the steps of priority 0 queued less than 2 aging times ago, but after the older ones.
+ * The urgent steps overtake the others, and no step waits forever behind a stream of more urgent ones.
+ * Steps of the same rank run in the order they were queued.
+ */
+final class PriorityTaskQueue extends PriorityBlockingQueue<Runnable> {
+    private final int capacity;
+    private final long agingNanos;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @param capacity maximum number of steps waiting
+     * @param agingMs  waiting time worth one level of priority, in milliseconds
+     */
+    PriorityTaskQueue(int capacity, long agingMs) {
+        super(11, (first, second) -> compare((PrioritizedStep) first, (PrioritizedStep) second));
+        this.capacity = capacity;
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMs);
+    }
+
+    /**
+     * @param runnable step to queue
+     * @param priority priority of its process, the higher the sooner
+     * @return the step, to be given to the pool that queues it
+     */
+    Runnable prioritize(Runnable runnable, int priority) {
+        return new PrioritizedStep(runnable, System.nanoTime() - priority * agingNanos, sequence.getAndIncrement());
+    }
+
+    /**
+     * Queue a step, unless the queue is full : the pool then rejects it
+     */
+    @Override
+    public synchronized boolean offer(Runnable step) {
+        return size() < capacity && super.offer(step);
+    }
+
+    @Override
+    public void put(Runnable step) {
+        if (!offer(step)) {
+            throw new IllegalStateException("Queue full");
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    /**
+     * The ranks are compared as {@link System#nanoTime()} values, by their difference
+     */
+    private static int compare(PrioritizedStep first, PrioritizedStep second) {
+        int byRank = Long.signum(first.rank() - second.rank());
+        return byRank != 0 ? byRank : Long.compare(first.sequence(), second.sequence());
+    }
+
+    private record PrioritizedStep(Runnable runnable, long rank, long sequence) implements Runnable {
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.sebastientr.workflow.queuing.executor;
+
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor running the engine steps, owned by the engine so it does not compete with the application default executor.
+ * Runs on platform threads, or on Java 21 virtual threads, with a bounded queue.
+ * When the queue is full, and the pool is at its max size, the step is rejected : it is never run by the publishing thread,
+ * which may be a dispatcher, a timer or a client thread. Its outbox event is left to the dispatchers, which only claim
+ * events while the queue has room.
+ * The queue runs the steps of the processes with a higher priority first, see {@link PriorityTaskQueue}.
+ */
+@Slf4j
+@Component
+public class WorkflowEngineExecutor {
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    private static final int DEFAULT_VIRTUAL_MAX_SIZE = 1024;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${workflow-engine.executor.mode:platform}")
+    private Mode mode;
+
+    @Value("${workflow-engine.executor.core-size:8}")
+    private Integer coreSize;
+
+    /**
+     * Workers above the core size are only started once the queue is full, the max size defaults to the core size
+     */
+    @Value("${workflow-engine.executor.max-size:#{null}}")
+    private Integer maxSize;
+
+    @Value("${workflow-engine.executor.queue-capacity:10000}")
+    private Integer queueCapacity;
+
+    @Value("${workflow-engine.executor.keep-alive-seconds:60}")
+    private Integer keepAliveSeconds;
+
+    @Value("${workflow-engine.executor.priority-aging-ms:1000}")
+    private Long priorityAgingMs;
+
+    @Value("${workflow-engine.executor.thread-name-prefix:workflow-engine-}")
+    private String threadNamePrefix;
+
+    private ThreadPoolTaskExecutor executor;
+    private PriorityTaskQueue queue;
+    private Counter rejectedCounter;
+
+    public WorkflowEngineExecutor(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.meterRegistryProvider = meterRegistryProvider;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        executor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int capacity) {
+                queue = new PriorityTaskQueue(capacity, priorityAgingMs);
+                return queue;
+            }
+        };
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        if (Mode.VIRTUAL.equals(mode)) {
+            // Virtual threads are cheap, the pool only bounds the concurrency and lets idle threads go
+            int concurrency = maxSize == null ? DEFAULT_VIRTUAL_MAX_SIZE : maxSize;
+            executor.setThreadFactory(virtualThreadFactory());
+            executor.setCorePoolSize(concurrency);
+            executor.setMaxPoolSize(concurrency);
+            executor.setAllowCoreThreadTimeOut(true);
+        } else {
+            executor.setCorePoolSize(coreSize);
+            executor.setMaxPoolSize(Math.max(coreSize, maxSize == null ? coreSize : maxSize));
+        }
+
+        executor.initialize();
+        registerGauges(meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry));
+
+        log.info("Workflow engine executor started with {} threads (max {}), queue capacity {}",
+                mode, executor.getMaxPoolSize(), queueCapacity);
+    }
+
+    private ThreadFactory virtualThreadFactory() {
+        try {
+            return new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+        } catch (UnsupportedOperationException e) {
+            throw new WorkflowEngineRuntimeException("Executor mode %s requires Java 21 or higher".formatted(Mode.VIRTUAL));
+        }
+    }
+
+    private void registerGauges(MeterRegistry meterRegistry) {
+        Gauge.builder("workflow.engine.executor.queue.size", this, WorkflowEngineExecutor::getQueueSize)
+                .description("Steps waiting for a worker")
+                .register(meterRegistry);
+
+        Gauge.builder("workflow.engine.executor.active", this, WorkflowEngineExecutor::getActiveCount)
+                .description("Workers currently running a step")
+                .register(meterRegistry);
+
+        Gauge.builder("workflow.engine.executor.pool.size", this, e -> e.executor.getPoolSize())
+                .description("Workers currently in the pool")
+                .register(meterRegistry);
+
+        rejectedCounter = Counter.builder("workflow.engine.executor.rejected")
+                .description("Steps rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run a step on a worker, unless the queue is full
+     *
+     * @param runnable step to run
+     * @return false if the step was rejected, the caller then leaves it to the outbox
+     */
+    public boolean execute(Runnable runnable) {
+        return execute(runnable, WorkflowEngineConstant.DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Run a step on a worker, before the less urgent ones waiting in the queue, unless the queue is full
+     *
+     * @param runnable step to run
+     * @param priority priority of the process of the step, the higher the sooner
+     * @return false if the step was rejected, the caller then leaves it to the outbox
+     */
+    public boolean execute(Runnable runnable, int priority) {
+        try {
+            executor.execute(queue.prioritize(runnable, priority));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Workflow engine executor queue is full, step rejected");
+            rejectedCounter.increment();
+            return false;
+        }
+    }
+
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    /**
+     * @return number of steps the queue can still take
+     */
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,279 @@
+package com.sebastientr.workflow.queuing.limiter;
+
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Limits of a task on this node : a bulkhead bounding the steps running at once, and a token bucket bounding the steps
+ * started per second.
+ *
+ * The steps over the limits wait in memory, without holding a worker, and are handed to the executor once a step ends
+ * or a token is due. Their outbox events are still leased, a node that stops loses none of them.
+ * When the steps can wait in the outbox, the limiter only holds the ones it can let through until the dispatchers poll again,
+ * the others are handed back to their caller : they wait in the table rather than in memory, past the lease of their event.
+ * The waiting steps are let through in the order they came, the executor then queues them with their priority.
+ * The limiter never runs a step itself : a step rejected by the executor is handed back to its caller.
+ * A step holds its slot until it returns, or until it frees the slot it kept, as an asynchronous task does once its completion is written.
+ */
+public final class TaskLimiter {
+    private final String taskName;
+    private final Limits limits;
+    private final int maxPending;
+    private final StepExecutor executor;
+    private final ScheduledExecutorService timer;
+    private final Timer waitTimer;
+
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private int running;
+    private double tokens;
+    private long refilledAt;
+    private boolean drainScheduled;
+
+    /**
+     * @param task      task whose limits apply
+     * @param refillMs  time before the outbox dispatchers hand more steps to the limiter, null if the steps cannot wait elsewhere
+     * @param executor  executor running the steps, with their priority
+     * @param timer     timer waking the limiter up when its next token is due
+     * @param waitTimer meter of the time spent by the steps waiting for the limiter
+     */
+    TaskLimiter(TaskEntity task, Long refillMs, StepExecutor executor, ScheduledExecutorService timer, Timer waitTimer) {
+        this.taskName = task.getName();
+        this.limits = Limits.of(task);
+        this.maxPending = refillMs == null ? Integer.MAX_VALUE :
+                limits.maxConcurrency() + (int) Math.ceil(limits.burst() + limits.ratePerSecond() * refillMs / TimeUnit.SECONDS.toMillis(1));
+        this.executor = executor;
+        this.timer = timer;
+        this.waitTimer = waitTimer;
+        this.tokens = limits.burst();
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * @param task task to check
+     * @return true if the task has a concurrency or a rate limit
+     */
+    public static boolean isLimited(TaskEntity task) {
+        return task != null && (task.getMaxConcurrency() != null && task.getMaxConcurrency() > 0
+                || task.getRatePerSecond() != null && task.getRatePerSecond() > 0);
+    }
+
+    /**
+     * Run a step once the limits allow it
+     *
+     * @param step     step to run, with its slot
+     * @param priority priority of the process of the step
+     * @param rejected called instead of the step if the limiter is full or the executor rejects it
+     */
+    public void submit(Consumer<Slot> step, int priority, Runnable rejected) {
+        boolean accepted;
+
+        synchronized (this) {
+            accepted = pending.size() < maxPending;
+            if (accepted) {
+                pending.add(new Pending(step, priority, rejected, System.nanoTime()));
+            }
+        }
+
+        if (!accepted) {
+            rejected.run();
+            return;
+        }
+
+        drain();
+    }
+
+    /**
+     * @param task task read from the configuration
+     * @return true if this limiter still enforces the limits of the task
+     */
+    boolean hasLimitsOf(TaskEntity task) {
+        return limits.equals(Limits.of(task));
+    }
+
+    /**
+     * @return number of steps waiting for the limiter
+     */
+    public synchronized int getQueued() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of steps the limiter holds at most
+     */
+    public int getMaxQueued() {
+        return maxPending;
+    }
+
+    /**
+     * @return number of steps handed to the executor and not ended yet
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * Hand the steps allowed by the limits to the executor. The executor is called outside the lock : a step it rejects
+     * gives its slot back and is handed to its {@code rejected} callback, it is never run on the calling thread.
+     */
+    private void drain() {
+        List<Pending> ready = new ArrayList<>();
+
+        synchronized (this) {
+            while (!pending.isEmpty() && hasFreeSlot() && tryAcquireToken()) {
+                ready.add(pending.poll());
+                running++;
+            }
+
+            if (!pending.isEmpty() && hasFreeSlot() && !drainScheduled) {
+                // Only the rate holds the steps back, nothing else will wake the limiter up
+                drainScheduled = true;
+                timer.schedule(this::scheduledDrain, nanosUntilNextToken(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        ready.forEach(step -> {
+            if (!executor.execute(() -> run(step), step.priority())) {
+                synchronized (this) {
+                    running--;
+                }
+                step.rejected().run();
+            }
+        });
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+
+        drain();
+    }
+
+    private void run(Pending step) {
+        waitTimer.record(System.nanoTime() - step.queuedAt(), TimeUnit.NANOSECONDS);
+        Slot slot = new Slot(this::free);
+
+        try {
+            step.step().accept(slot);
+        } finally {
+            if (!slot.isKept()) {
+                slot.free();
+            }
+        }
+    }
+
+    private void free() {
+        synchronized (this) {
+            running--;
+        }
+
+        drain();
+    }
+
+    private boolean hasFreeSlot() {
+        return limits.maxConcurrency() == 0 || running < limits.maxConcurrency();
+    }
+
+    private boolean tryAcquireToken() {
+        if (limits.ratePerSecond() == 0) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        tokens = Math.min(limits.burst(), tokens + (now - refilledAt) * limits.ratePerSecond() / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+
+        return false;
+    }
+
+    private long nanosUntilNextToken() {
+        return Math.max(1, (long) Math.ceil((1 - tokens) / limits.ratePerSecond() * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private record Pending(Consumer<Slot> step, int priority, Runnable rejected, long queuedAt) {
+    }
+
+    /**
+     * Slot of a step let through the limits. It is freed once the step returns, unless the step keeps it.
+     */
+    public static final class Slot {
+        private final Runnable free;
+        private final AtomicBoolean freed = new AtomicBoolean();
+        private volatile boolean kept;
+
+        private Slot(Runnable free) {
+            this.free = free;
+        }
+
+        /**
+         * @return slot of a step whose task has no limit
+         */
+        public static Slot unlimited() {
+            return new Slot(() -> { });
+        }
+
+        /**
+         * Keep the slot once the step returns, until the returned callback is called
+         *
+         * @return callback freeing the slot, only its first call counts
+         */
+        public Runnable keep() {
+            kept = true;
+            return this::free;
+        }
+
+        private boolean isKept() {
+            return kept;
+        }
+
+        private void free() {
+            if (freed.compareAndSet(false, true)) {
+                free.run();
+            }
+        }
+    }
+
+    /**
+     * Executor of the steps let through
+     */
+    @FunctionalInterface
+    interface StepExecutor {
+        /**
+         * @return false if the step was rejected
+         */
+        boolean execute(Runnable step, int priority);
+    }
+
+    /**
+     * @param maxConcurrency maximum steps running at once, 0 if there is no limit
+     * @param ratePerSecond  steps started per second, 0 if there is no limit
+     * @param burst          capacity of the token bucket
+     */
+    private record Limits(int maxConcurrency, double ratePerSecond, double burst) {
+        static Limits of(TaskEntity task) {
+            int maxConcurrency = task.getMaxConcurrency() == null ? 0 : Math.max(task.getMaxConcurrency(), 0);
+            double ratePerSecond = task.getRatePerSecond() == null ? 0 : Math.max(task.getRatePerSecond(), 0);
+            double burst = task.getRateBurst() == null ? Math.max(1, Math.ceil(ratePerSecond)) : Math.max(task.getRateBurst(), 1);
+
+            return new Limits(maxConcurrency, ratePerSecond, burst);
+        }
+    }
+}
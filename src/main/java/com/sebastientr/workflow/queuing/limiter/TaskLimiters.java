@@ -0,0 +1,132 @@
+package com.sebastientr.workflow.queuing.limiter;
+
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.queuing.outbox.WorkflowOutbox;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * Limiters of the tasks of this node, by task name.
+ * A limiter is built the first time a step of its task is consumed, and replaced once the limits of the task change.
+ * With the outbox enabled, a limiter only holds the steps it lets through within a poll of the dispatchers.
+ */
+@Component
+public class TaskLimiters {
+    private final WorkflowEngineExecutor workflowEngineExecutor;
+    private final WorkflowEngineMetrics workflowEngineMetrics;
+    private final WorkflowOutbox workflowOutbox;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, TaskLimiter> limiters = new ConcurrentHashMap<>();
+
+    @Value("${workflow-engine.outbox.poll-interval-ms:1000}")
+    private Long outboxPollIntervalMs;
+
+    public TaskLimiters(WorkflowEngineExecutor workflowEngineExecutor, WorkflowEngineMetrics workflowEngineMetrics, WorkflowOutbox workflowOutbox) {
+        this.workflowEngineExecutor = workflowEngineExecutor;
+        this.workflowEngineMetrics = workflowEngineMetrics;
+        this.workflowOutbox = workflowOutbox;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-engine-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a step on the executor, once the limits of its task allow it. The step is dropped if the limiter is full or the executor rejects it.
+     *
+     * @param task task of the step
+     * @param step step to run
+     */
+    public void execute(TaskEntity task, Runnable step) {
+        execute(task, WorkflowEngineConstant.DEFAULT_PRIORITY, step, () -> { });
+    }
+
+    /**
+     * Run a step on the executor with the priority of its process, once the limits of its task allow it
+     *
+     * @param task     task of the step
+     * @param priority priority of the process of the step
+     * @param step     step to run
+     * @param rejected called instead of the step if the limiter is full or the executor rejects it
+     */
+    public void execute(TaskEntity task, int priority, Runnable step, Runnable rejected) {
+        execute(task, priority, slot -> step.run(), rejected);
+    }
+
+    /**
+     * Run a step on the executor with the priority of its process, once the limits of its task allow it.
+     * The step may keep its slot after it returns, until its work is done.
+     *
+     * @param task     task of the step
+     * @param priority priority of the process of the step
+     * @param step     step to run, with its slot
+     * @param rejected called instead of the step if the limiter is full or the executor rejects it
+     */
+    public void execute(TaskEntity task, int priority, Consumer<TaskLimiter.Slot> step, Runnable rejected) {
+        TaskLimiter limiter = get(task);
+
+        if (limiter == null) {
+            if (!workflowEngineExecutor.execute(() -> step.accept(TaskLimiter.Slot.unlimited()), priority)) {
+                rejected.run();
+            }
+        } else {
+            limiter.submit(step, priority, rejected);
+        }
+    }
+
+    /**
+     * @param task task of the steps
+     * @return limiter of the task, null if the task has no limit
+     */
+    public TaskLimiter get(TaskEntity task) {
+        if (!TaskLimiter.isLimited(task)) {
+            return null;
+        }
+
+        TaskLimiter limiter = limiters.get(task.getName());
+        if (limiter != null && limiter.hasLimitsOf(task)) {
+            return limiter;
+        }
+
+        return limiters.compute(task.getName(), (name, current) -> {
+            if (current != null && current.hasLimitsOf(task)) {
+                return current;
+            }
+
+            if (current == null) {
+                workflowEngineMetrics.limiterQueued(name, () -> queued(name));
+            }
+
+            // The steps the replaced limiter holds are still run by it, under its former limits
+            Long refillMs = workflowOutbox.isEnabled() ? outboxPollIntervalMs : null;
+            return new TaskLimiter(task, refillMs, workflowEngineExecutor::execute, timer, workflowEngineMetrics.limiterWaitTimer(name));
+        });
+    }
+
+    /**
+     * @return number of steps waiting for the limiters of this node
+     */
+    public int getQueued() {
+        return limiters.values().stream().mapToInt(TaskLimiter::getQueued).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private int queued(String taskName) {
+        TaskLimiter limiter = limiters.get(taskName);
+        return limiter == null ? 0 : limiter.getQueued();
+    }
+}
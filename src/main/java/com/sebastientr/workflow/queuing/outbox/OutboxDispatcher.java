@@ -0,0 +1,131 @@
+package com.sebastientr.workflow.queuing.outbox;
+
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.TransactionExecutor;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.process.node.WorkflowEngineNode;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiters;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Publish the outbox events that were not consumed in time : the process was interrupted (crash, shutdown)
+ * before its next step ran, the event was written for later, or it is left to any node.
+ * Every node polls the same table, a batch claimed by a node is leased to it and skipped by the others.
+ * A node only claims as many events as its executor queue can take beyond the steps its limiters hold, the others wait
+ * in the table. A batch whose events were not all taken ends the poll.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+    private final OutboxEventRepository outboxEventRepository;
+    private final WorkflowEngineEventPublisher workflowEngineEventPublisher;
+    private final WorkflowOutbox workflowOutbox;
+    private final FlowRegistry flowRegistry;
+    private final TransactionExecutor transactionExecutor;
+    private final WorkflowEngineNode workflowEngineNode;
+    private final WorkflowEngineExecutor workflowEngineExecutor;
+    private final TaskLimiters taskLimiters;
+    private final Counter dispatchedCounter;
+
+    @Value("${workflow-engine.outbox.batch-size:100}")
+    private Integer batchSize;
+
+    @Value("${workflow-engine.outbox.lease-ms:300000}")
+    private Long leaseMs;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, WorkflowEngineEventPublisher workflowEngineEventPublisher, WorkflowOutbox workflowOutbox, FlowRegistry flowRegistry, TransactionExecutor transactionExecutor, WorkflowEngineNode workflowEngineNode, WorkflowEngineExecutor workflowEngineExecutor, TaskLimiters taskLimiters, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.workflowEngineEventPublisher = workflowEngineEventPublisher;
+        this.workflowOutbox = workflowOutbox;
+        this.flowRegistry = flowRegistry;
+        this.transactionExecutor = transactionExecutor;
+        this.workflowEngineNode = workflowEngineNode;
+        this.workflowEngineExecutor = workflowEngineExecutor;
+        this.taskLimiters = taskLimiters;
+        this.dispatchedCounter = Counter.builder("workflow.engine.outbox.dispatched")
+                .description("Outbox events published by the dispatcher")
+                .register(meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * Drain the due events, batch by batch, until there is no full batch left, the executor queue is full, or a limiter
+     * or the executor rejected some of the events
+     *
+     * @return number of published events
+     */
+    @Scheduled(fixedDelayString = "${workflow-engine.outbox.poll-interval-ms:1000}")
+    public int dispatch() {
+        if (!workflowOutbox.isEnabled() || !workflowEngineNode.isRunning()) {
+            return 0;
+        }
+
+        int total = 0;
+        int limit;
+        long released;
+        List<OutboxEventEntity> events;
+
+        do {
+            // The steps held by the limiters are bound for the executor queue as well
+            limit = Math.min(batchSize, workflowEngineExecutor.getRemainingCapacity() - taskLimiters.getQueued());
+            if (limit <= 0) {
+                break;
+            }
+
+            int claimLimit = limit;
+            released = workflowOutbox.getReleasedCount();
+            events = transactionExecutor.withReturn(() -> claim(claimLimit));
+            events.forEach(this::publish);
+            total += events.size();
+        } while (events.size() == limit && workflowOutbox.getReleasedCount() == released);
+
+        if (total > 0) {
+            log.info("Dispatched {} outbox events", total);
+        }
+
+        return total;
+    }
+
+    /**
+     * Lease a batch of due events to this node, so they are not dispatched again before the lease ends or this node dies
+     */
+    private List<OutboxEventEntity> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventEntity> events = outboxEventRepository.findDueForUpdate(now, workflowEngineNode.getAliveSince(), Limit.of(limit));
+
+        events.forEach(event -> {
+            event.setOwner(workflowEngineNode.getId());
+            event.setLockedUntil(now.plus(leaseMs, ChronoUnit.MILLIS));
+        });
+
+        return events;
+    }
+
+    private void publish(OutboxEventEntity event) {
+        try {
+            CompiledFlowTask step = flowRegistry.get(event.getFlowName()).getStep(event.getTaskOrder())
+                    .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find task order %d on flow %s".formatted(event.getTaskOrder(), event.getFlowName())));
+
+            workflowEngineEventPublisher.publishStartTaskEvent(step.getFlowTask(), event.getProcessId(), event.getId(), event.getPriority());
+            dispatchedCounter.increment();
+        } catch (RuntimeException e) {
+            log.error("Could not dispatch outbox event {} of process {}", event.getId(), event.getProcessId(), e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sebastientr.workflow.queuing.outbox;
+
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publish the committed START_TASK events of this node, right away or, for the delayed steps and the retries, once they are due.
+ *
+ * A single thread holds every pending event, without any worker waiting for them. The timer only keeps the events due
+ * within the outbox lease : the later ones, and the ones of a node that stopped, are published by the {@link OutboxDispatcher}.
+ */
+@Slf4j
+@Component
+public class OutboxTimer {
+    private final WorkflowEngineEventPublisher workflowEngineEventPublisher;
+    private final WorkflowOutbox workflowOutbox;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public OutboxTimer(WorkflowEngineEventPublisher workflowEngineEventPublisher, WorkflowOutbox workflowOutbox) {
+        this.workflowEngineEventPublisher = workflowEngineEventPublisher;
+        this.workflowOutbox = workflowOutbox;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-engine-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Publish the committed event starting a step, now or once its delay is over, unless it is left to the dispatchers
+     *
+     * @param step          step to start
+     * @param processId     process id
+     * @param priority      priority of the process
+     * @param outboxEventId outbox event id, may be null when the outbox is disabled
+     * @param delayMs       delay the event was written with, 0 if it is due now
+     */
+    public void publishWhenDue(CompiledFlowTask step, UUID processId, int priority, UUID outboxEventId, long delayMs) {
+        if (delayMs <= 0) {
+            if (workflowOutbox.isPublishedAfterCommit()) {
+                workflowEngineEventPublisher.publishStartTaskEvent(step.getFlowTask(), processId, outboxEventId, priority);
+            }
+        } else if (workflowOutbox.isTimedLocally(delayMs)) {
+            schedule(step, processId, priority, outboxEventId, delayMs);
+        }
+    }
+
+    /**
+     * Publish the event starting a step after a delay
+     */
+    private void schedule(CompiledFlowTask step, UUID processId, int priority, UUID outboxEventId, long delayMs) {
+        scheduler.schedule(() -> publish(step, processId, priority, outboxEventId), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return number of events waiting to be published
+     */
+    public int size() {
+        return scheduler.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void publish(CompiledFlowTask step, UUID processId, int priority, UUID outboxEventId) {
+        try {
+            workflowEngineEventPublisher.publishStartTaskEvent(step.getFlowTask(), processId, outboxEventId, priority);
+        } catch (RuntimeException e) {
+            // The event is still in the outbox, the dispatchers publish it once its lease is over
+            log.error("Could not publish the delayed task {} of process {}", step.getTaskName(), processId, e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.sebastientr.workflow.queuing.outbox;
+
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.node.WorkflowEngineNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable side of the START_TASK events.
+ * Every method must be called inside the transaction of the state change it belongs to.
+ */
+@Slf4j
+@Component
+public class WorkflowOutbox {
+    private final OutboxEventRepository outboxEventRepository;
+    private final WorkflowEngineNode workflowEngineNode;
+
+    @Value("${workflow-engine.outbox.enabled:true}")
+    private Boolean enabled;
+
+    @Value("${workflow-engine.outbox.publish-after-commit:true}")
+    private Boolean publishAfterCommit;
+
+    @Value("${workflow-engine.outbox.lease-ms:300000}")
+    private Long leaseMs;
+
+    @Value("${workflow-engine.outbox.poll-interval-ms:1000}")
+    private Long pollIntervalMs;
+
+    private final AtomicLong releasedCount = new AtomicLong();
+
+    public WorkflowOutbox(OutboxEventRepository outboxEventRepository, WorkflowEngineNode workflowEngineNode) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.workflowEngineNode = workflowEngineNode;
+    }
+
+    /**
+     * Write the event starting the given step.
+     * When published after commit, the event is leased to this node, the dispatchers only take it over if it is still
+     * present once the lease is over or once this node stopped its heartbeat.
+     * Otherwise, the event is left to the first dispatcher that claims it, on any node.
+     *
+     * @param step    step to start
+     * @param process process of the step
+     * @return the outbox event id, null when the outbox is disabled
+     */
+    public UUID enqueue(CompiledFlowTask step, ProcessEntity process) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        return outboxEventRepository.save(newEvent(step, process, LocalDateTime.now(), 0)).getId();
+    }
+
+    /**
+     * Write the events starting the given steps of each given process, see {@link #enqueueLater(CompiledFlowTask, ProcessEntity, long)}
+     *
+     * @param steps     steps to start
+     * @param processes processes of the steps
+     * @param delaysMs  delay of each event in milliseconds, by process then by step
+     * @return the outbox event ids, by process then by step, nulls when the outbox is disabled
+     */
+    public List<UUID> enqueueAll(List<CompiledFlowTask> steps, List<ProcessEntity> processes, List<Long> delaysMs) {
+        if (!isEnabled()) {
+            return Collections.nCopies(steps.size() * processes.size(), null);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventEntity> events = new ArrayList<>(steps.size() * processes.size());
+
+        for (ProcessEntity process : processes) {
+            for (CompiledFlowTask step : steps) {
+                events.add(newEvent(step, process, now, delaysMs.get(events.size())));
+            }
+        }
+
+        return outboxEventRepository.saveAll(events).stream().map(OutboxEventEntity::getId).toList();
+    }
+
+    private OutboxEventEntity newEvent(CompiledFlowTask step, ProcessEntity process, LocalDateTime now, long delayMs) {
+        LocalDateTime availableAt = now.plus(delayMs, ChronoUnit.MILLIS);
+        OutboxEventEntity event = new OutboxEventEntity(process.getId(), process.getFlowName(), step.getTaskOrder(), availableAt, null);
+        event.setPriority(process.getPriority());
+
+        if (isTimedLocally(delayMs)) {
+            event.setOwner(workflowEngineNode.getId());
+            event.setLockedUntil(availableAt.plus(leaseMs, ChronoUnit.MILLIS));
+        }
+
+        return event;
+    }
+
+    /**
+     * Write the event starting the given step after a delay.
+     * When the caller times it, see {@link #isTimedLocally(long)}, the event is leased to this node until the end of the delay
+     * plus the lease. Otherwise, the event is left to the first dispatcher that claims it once due, on any node.
+     *
+     * @param step    step to start
+     * @param process process of the step
+     * @param delayMs delay in milliseconds
+     * @return the outbox event id, null when the outbox is disabled
+     */
+    public UUID enqueueLater(CompiledFlowTask step, ProcessEntity process, long delayMs) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        return outboxEventRepository.save(newEvent(step, process, LocalDateTime.now(), delayMs)).getId();
+    }
+
+    /**
+     * @param delayMs delay of an event written by {@link #enqueueLater(CompiledFlowTask, ProcessEntity, long)}
+     * @return true if the caller shall publish the event once the delay is over, false if it is left to the dispatchers
+     */
+    public boolean isTimedLocally(long delayMs) {
+        return !isEnabled() || (Boolean.TRUE.equals(publishAfterCommit) && delayMs < leaseMs);
+    }
+
+    /**
+     * Write the event starting the given step, left to the first dispatcher that claims it, on any node
+     *
+     * @param step      step to start
+     * @param processId process id
+     * @param flowName  flow name of the process
+     * @param priority  priority of the process
+     */
+    public void enqueueForDispatchers(CompiledFlowTask step, UUID processId, String flowName, int priority) {
+        OutboxEventEntity event = new OutboxEventEntity(processId, flowName, step.getTaskOrder(), LocalDateTime.now(), null);
+        event.setPriority(priority);
+        outboxEventRepository.save(event);
+    }
+
+    /**
+     * Consume an event before running its step. The row stays locked until the step transaction ends,
+     * so a concurrent delivery of the same event waits, then finds nothing to consume.
+     *
+     * @param outboxEventId outbox event id, may be null for events that were not written to the outbox
+     * @return false if the event was already consumed
+     */
+    public boolean acknowledge(UUID outboxEventId) {
+        return outboxEventId == null || outboxEventRepository.deleteEventById(outboxEventId) > 0;
+    }
+
+    /**
+     * Check, without consuming them, which events are still to be consumed
+     *
+     * @param outboxEventIds outbox event ids, may contain null for events that were not written to the outbox
+     * @return the given ids whose event was not consumed yet
+     */
+    public Set<UUID> findUnconsumed(Collection<UUID> outboxEventIds) {
+        List<UUID> ids = outboxEventIds.stream().filter(Objects::nonNull).toList();
+
+        return ids.isEmpty() ? Set.of() : new HashSet<>(outboxEventRepository.findIdsByIdIn(ids));
+    }
+
+    /**
+     * Give up the lease of the events whose step was rejected by a limiter or the executor, the dispatchers publish them
+     * again once a node has room for them. They are not claimed again before the next poll of the dispatchers.
+     *
+     * @param outboxEventIds outbox event ids, may contain null for events that were not written to the outbox
+     */
+    public void release(Collection<UUID> outboxEventIds) {
+        List<UUID> ids = outboxEventIds.stream().filter(Objects::nonNull).toList();
+
+        if (ids.size() < outboxEventIds.size()) {
+            log.error("{} rejected steps are lost, their events were not written to the outbox", outboxEventIds.size() - ids.size());
+        }
+
+        if (!ids.isEmpty()) {
+            outboxEventRepository.releaseByIdIn(ids, LocalDateTime.now().plus(pollIntervalMs, ChronoUnit.MILLIS));
+            releasedCount.addAndGet(ids.size());
+        }
+    }
+
+    /**
+     * @return number of events released by this node since it started
+     */
+    public long getReleasedCount() {
+        return releasedCount.get();
+    }
+
+    /**
+     * Drop the pending events of the IN_PROGRESS processes of the (from, to] id range owned by this node
+     *
+     * @param from excluded lower process id
+     * @param to   included upper process id
+     */
+    public void discardInProgress(UUID from, UUID to) {
+        if (isEnabled()) {
+            outboxEventRepository.deleteByProcessRange(from, to, workflowEngineNode.getId(), ProcessStatus.IN_PROGRESS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+    /**
+     * @return true if the caller shall publish the event once its transaction is committed
+     */
+    public boolean isPublishedAfterCommit() {
+        return !isEnabled() || Boolean.TRUE.equals(publishAfterCommit);
+    }
+}
@@ -13,6 +13,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.util.UUID;
+
 @Slf4j
 @Component
 public class WorkflowEngineEventPublisher {
@@ -33,7 +35,21 @@ public class WorkflowEngineEventPublisher {
     }
 
     public void publishStartTaskEvent(FlowTaskEntity flowTaskEntity, ProcessEntity process) {
-        publishEvent(new StartTaskDTO(flowTaskEntity, process.getId()), WorkflowEvent.EventType.START_TASK);
+        publishStartTaskEvent(flowTaskEntity, process.getId(), null, process.getPriority());
+    }
+
+    /**
+     * Publish the start of a task written to the outbox
+     */
+    public void publishStartTaskEvent(FlowTaskEntity flowTaskEntity, UUID processId, UUID outboxEventId, int priority) {
+        publishEvent(new StartTaskDTO(flowTaskEntity, processId, false, outboxEventId, priority), WorkflowEvent.EventType.START_TASK);
+    }
+
+    /**
+     * Notify that a task is started inline by the current worker, the engine does not dispatch this event
+     */
+    public void publishInlineStartTaskEvent(FlowTaskEntity flowTaskEntity, ProcessEntity process) {
+        publishEvent(new StartTaskDTO(flowTaskEntity, process.getId(), true, null, process.getPriority()), WorkflowEvent.EventType.START_TASK);
     }
 
     public void publishEndTaskEvent(FlowTaskEntity flowTask, ProcessEntity process, TaskInstanceEntity taskInstance) {
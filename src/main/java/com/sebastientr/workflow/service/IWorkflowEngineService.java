@@ -3,9 +3,14 @@ package com.sebastientr.workflow.service;
 import com.sebastientr.workflow.domain.entity.ContextEntity;
 import com.sebastientr.workflow.domain.entity.ProcessEntity;
 import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.dto.ProcessPageDTO;
+import com.sebastientr.workflow.dto.ProcessSearchDTO;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface IWorkflowEngineService {
     /**
@@ -16,6 +21,35 @@ public interface IWorkflowEngineService {
      */
     ProcessEntity start(String flowName, ContextEntity context);
 
+    /**
+     * Start a new process with a priority, inherited by every step of the process.
+     * When the workers are busy, the steps of the processes with a higher priority are run first.
+     * @param flowName flow name
+     * @param context initial context
+     * @param priority priority of the process, the higher the sooner, 0 by default
+     * @return newly created process entity
+     */
+    ProcessEntity start(String flowName, ContextEntity context, int priority);
+
+    /**
+     * Start a new process for each given initial context.
+     * The processes are written by chunks, one transaction and a few batched statements per chunk,
+     * and their events are published once their chunk is committed.
+     * @param flowName flow name
+     * @param contexts initial contexts
+     * @return newly created process entities, in the order of the contexts
+     */
+    List<ProcessEntity> startAll(String flowName, List<ContextEntity> contexts);
+
+    /**
+     * Start a new process with the given priority for each given initial context, see {@link #startAll(String, List)}
+     * @param flowName flow name
+     * @param contexts initial contexts
+     * @param priority priority of the processes, the higher the sooner, 0 by default
+     * @return newly created process entities, in the order of the contexts
+     */
+    List<ProcessEntity> startAll(String flowName, List<ContextEntity> contexts, int priority);
+
     /**
      * Get the process by providing its id
      * @param processId process uuid
@@ -40,6 +74,36 @@ public interface IWorkflowEngineService {
      */
     List<ProcessEntity> get(List<String> processId);
 
+    /**
+     * Get the status and counters of a process, without loading its task instances nor its context
+     * @param processId process uuid
+     * @return process summary
+     */
+    ProcessSummaryDTO getSummary(String processId);
+
+    /**
+     * Get the status and counters of processes, in a single query, without loading their task instances nor their context
+     * @param processIds process uuid list
+     * @return summaries of the existing processes, in no particular order
+     */
+    List<ProcessSummaryDTO> getSummaries(List<String> processIds);
+
+    /**
+     * Search processes by flow name, status and creation date, the most recent first.
+     * Pages are read with a cursor, so reading a page costs the same whatever its position.
+     * @param search search criteria and cursor of the page
+     * @return page of process summaries, with the cursor of the next page
+     */
+    ProcessPageDTO search(ProcessSearchDTO search);
+
+    /**
+     * Wait for the end of a process, without polling it
+     * @param processId process uuid
+     * @param timeout maximum wait, the future then completes exceptionally with a TimeoutException
+     * @return future completed with the summary of the process once it ended
+     */
+    CompletableFuture<ProcessSummaryDTO> awaitCompletion(String processId, Duration timeout);
+
     /**
      * Retry a specific task that has failed and is allow to fail (so to be retried) by providing process id and task id
      * @param processId process id on which retry a task
@@ -48,6 +112,11 @@ public interface IWorkflowEngineService {
      */
     ProcessEntity retry(String processId, String taskId);
 
+    /**
+     * Compile again every flow definition, to be called after the flows configuration has been updated
+     */
+    void reloadFlows();
+
     /**
      * Get all flows definition
      * @return a list of flows
@@ -4,17 +4,29 @@ import com.sebastientr.workflow.domain.entity.ContextEntity;
 import com.sebastientr.workflow.domain.entity.ProcessEntity;
 import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
 import com.sebastientr.workflow.domain.entity.core.FlowEntity;
-import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
 import com.sebastientr.workflow.domain.repository.ContextRepository;
 import com.sebastientr.workflow.domain.repository.FlowRepository;
 import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.ProcessPageDTO;
+import com.sebastientr.workflow.dto.ProcessSearchDTO;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
 import com.sebastientr.workflow.dto.enumeration.TaskStatus;
 import com.sebastientr.workflow.exception.WorkflowEngineConfigurationException;
 import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
 import com.sebastientr.workflow.process.ConfigurationLoader;
+import com.sebastientr.workflow.process.ProcessCompletionRegistry;
+import com.sebastientr.workflow.process.ProcessResumer;
 import com.sebastientr.workflow.process.TransactionExecutor;
 import com.sebastientr.workflow.process.WorkflowEngineProcessor;
+import com.sebastientr.workflow.process.flow.CompiledFlow;
+import com.sebastientr.workflow.process.flow.CompiledFlowTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.process.node.WorkflowEngineNode;
+import com.sebastientr.workflow.queuing.outbox.OutboxTimer;
+import com.sebastientr.workflow.queuing.outbox.WorkflowOutbox;
 import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
 import com.sebastientr.workflow.service.IWorkflowEngineService;
 import lombok.extern.slf4j.Slf4j;
@@ -23,8 +35,15 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -35,6 +54,13 @@ public class WorkflowEngineService implements IWorkflowEngineService {
     private final ContextRepository contextRepository;
     private final ProcessRepository processRepository;
     private final FlowRepository flowRepository;
+    private final FlowRegistry flowRegistry;
+    private final WorkflowOutbox workflowOutbox;
+    private final OutboxTimer outboxTimer;
+    private final WorkflowEngineNode workflowEngineNode;
+    private final ProcessResumer processResumer;
+    private final ProcessCompletionRegistry processCompletionRegistry;
+    private final WorkflowEngineMetrics workflowEngineMetrics;
 
     private final TransactionExecutor transactionExecutor;
 
@@ -47,44 +73,134 @@ public class WorkflowEngineService implements IWorkflowEngineService {
     @Value("${workflow-engine.continue-process-on-startup:false}")
     private Boolean continueProcessOnStartup;
 
-    public WorkflowEngineService(WorkflowEngineEventPublisher workflowEngineEventPublisher, WorkflowEngineProcessor workflowEngineProcessor, ConfigurationLoader configurationLoader, ContextRepository contextRepository, ProcessRepository processRepository, FlowRepository flowRepository, TransactionExecutor transactionExecutor) {
+    @Value("${workflow-engine.search.max-page-size:1000}")
+    private Integer searchMaxPageSize;
+
+    @Value("${workflow-engine.bulk.chunk-size:1000}")
+    private Integer bulkChunkSize;
+
+    public WorkflowEngineService(WorkflowEngineEventPublisher workflowEngineEventPublisher, WorkflowEngineProcessor workflowEngineProcessor, ConfigurationLoader configurationLoader, ContextRepository contextRepository, ProcessRepository processRepository, FlowRepository flowRepository, FlowRegistry flowRegistry, WorkflowOutbox workflowOutbox, OutboxTimer outboxTimer, WorkflowEngineNode workflowEngineNode, ProcessResumer processResumer, ProcessCompletionRegistry processCompletionRegistry, WorkflowEngineMetrics workflowEngineMetrics, TransactionExecutor transactionExecutor) {
         this.workflowEngineEventPublisher = workflowEngineEventPublisher;
         this.workflowEngineProcessor = workflowEngineProcessor;
         this.configurationLoader = configurationLoader;
         this.contextRepository = contextRepository;
         this.processRepository = processRepository;
         this.flowRepository = flowRepository;
+        this.flowRegistry = flowRegistry;
+        this.workflowOutbox = workflowOutbox;
+        this.outboxTimer = outboxTimer;
+        this.workflowEngineNode = workflowEngineNode;
+        this.processResumer = processResumer;
+        this.processCompletionRegistry = processCompletionRegistry;
+        this.workflowEngineMetrics = workflowEngineMetrics;
         this.transactionExecutor = transactionExecutor;
     }
 
     @Override
     public ProcessEntity start(String flowName, ContextEntity context) {
-        FlowEntity flow = flowRepository.findByNameOrderByTaskOrder(flowName)
-                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find flow %s".formatted(flowName)));
+        return start(flowName, context, WorkflowEngineConstant.DEFAULT_PRIORITY);
+    }
 
+    @Override
+    public ProcessEntity start(String flowName, ContextEntity context, int priority) {
+        CompiledFlow flow = flowRegistry.get(flowName);
+        CompiledFlowTask firstStep = getFirstStep(flow);
+        // When the flow starts with a parallel group, every branch is started
+        List<CompiledFlowTask> firstSteps = firstStep.getBranches();
+
+        List<Long> delaysMs = firstSteps.stream().map(step -> step.getDelayMs(context)).toList();
+        List<UUID> outboxEventIds = new ArrayList<>();
         ProcessEntity process = transactionExecutor.withReturn(() -> {
-            ProcessEntity newProcess = processRepository.save(new ProcessEntity(flow.getName(), context, flow.getSize()));
+            ProcessEntity newProcess = processRepository.save(newProcess(flow, firstStep, context, priority));
 
             log.info("Starting flow [{}] with processId : [{}]", flow.getName(), newProcess.getId());
 
             context.setProcess(newProcess);
             contextRepository.save(context);
+
+            for (int i = 0; i < firstSteps.size(); i++) {
+                outboxEventIds.add(workflowOutbox.enqueueLater(firstSteps.get(i), newProcess, delaysMs.get(i)));
+            }
+
             return newProcess;
         });
 
-        workflowEngineEventPublisher.publishStartProcessEvent(flow, process);
-        workflowEngineEventPublisher.publishStartTaskEvent(getFirstFlowTask(flow), process);
+        workflowEngineMetrics.processesStarted(flow.getName(), 1);
+        publishStart(flow, firstSteps, process, outboxEventIds, delaysMs);
+
+        return process;
+    }
+
+    @Override
+    public List<ProcessEntity> startAll(String flowName, List<ContextEntity> contexts) {
+        return startAll(flowName, contexts, WorkflowEngineConstant.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public List<ProcessEntity> startAll(String flowName, List<ContextEntity> contexts, int priority) {
+        CompiledFlow flow = flowRegistry.get(flowName);
+        CompiledFlowTask firstStep = getFirstStep(flow);
+        List<CompiledFlowTask> firstSteps = firstStep.getBranches();
+
+        List<ProcessEntity> processes = new ArrayList<>(contexts.size());
+
+        for (int from = 0; from < contexts.size(); from += bulkChunkSize) {
+            List<ContextEntity> chunk = contexts.subList(from, Math.min(from + bulkChunkSize, contexts.size()));
+
+            // Processes, contexts and outbox events of the chunk are written by the batched flush of its commit
+            List<Long> delaysMs = chunk.stream().flatMap(context -> firstSteps.stream().map(step -> step.getDelayMs(context))).toList();
+            List<UUID> outboxEventIds = new ArrayList<>();
+            List<ProcessEntity> started = transactionExecutor.withReturn(() -> {
+                List<ProcessEntity> newProcesses = processRepository.saveAll(chunk.stream().map(context -> newProcess(flow, firstStep, context, priority)).toList());
+                outboxEventIds.addAll(workflowOutbox.enqueueAll(firstSteps, newProcesses, delaysMs));
+                return newProcesses;
+            });
+
+            workflowEngineMetrics.processesStarted(flow.getName(), started.size());
+
+            for (int i = 0; i < started.size(); i++) {
+                publishStart(flow, firstSteps, started.get(i), outboxEventIds.subList(i * firstSteps.size(), (i + 1) * firstSteps.size()),
+                        delaysMs.subList(i * firstSteps.size(), (i + 1) * firstSteps.size()));
+            }
+
+            processes.addAll(started);
+        }
+
+        log.info("Started {} processes of flow [{}]", processes.size(), flow.getName());
+
+        return processes;
+    }
+
+    /**
+     * Create a process of the given flow, owned by this node, its context is persisted with it
+     */
+    private ProcessEntity newProcess(CompiledFlow flow, CompiledFlowTask firstStep, ContextEntity context, int priority) {
+        ProcessEntity process = new ProcessEntity(flow.getName(), context, flow.getSize());
+        process.setPriority(priority);
+        process.setOwner(workflowEngineNode.getId());
+        process.setPendingBranchCount(firstStep.isBranch() ? firstStep.getBranches().size() : 0);
+        context.setProcess(process);
 
         return process;
     }
 
-    private static FlowTaskEntity getFirstFlowTask(FlowEntity flow) {
-        for (FlowTaskEntity flowTask : flow.getFlowTask()) {
-            if (Boolean.TRUE.equals(flowTask.getEnabled()))
-                return flowTask;
+    /**
+     * Publish the start of a committed process and, unless they are left to the dispatchers, of its first steps once they are due
+     *
+     * @param outboxEventIds outbox event of each first step
+     * @param delaysMs       delay of each first step
+     */
+    private void publishStart(CompiledFlow flow, List<CompiledFlowTask> firstSteps, ProcessEntity process, List<UUID> outboxEventIds, List<Long> delaysMs) {
+        workflowEngineEventPublisher.publishStartProcessEvent(flow.getFlow(), process);
+
+        for (int i = 0; i < firstSteps.size(); i++) {
+            outboxTimer.publishWhenDue(firstSteps.get(i), process.getId(), process.getPriority(), outboxEventIds.get(i), delaysMs.get(i));
         }
+    }
 
-        throw new WorkflowEngineRuntimeException("No enable flow task was found on flow %s".formatted(flow.getName()));
+    private static CompiledFlowTask getFirstStep(CompiledFlow flow) {
+        return flow.getFirst()
+                .orElseThrow(() -> new WorkflowEngineRuntimeException("No enable flow task was found on flow %s".formatted(flow.getName())));
     }
 
     @Override
@@ -108,24 +224,67 @@ public class WorkflowEngineService implements IWorkflowEngineService {
         return processRepository.findByIdInOrderByTaskInstancesCreatedAt(processIds.stream().map(UUID::fromString).toList());
     }
 
+    @Override
+    public ProcessSummaryDTO getSummary(String processId) {
+        return processRepository.findSummaryById(UUID.fromString(processId))
+                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find process with id %s".formatted(processId)));
+    }
+
+    @Override
+    public List<ProcessSummaryDTO> getSummaries(List<String> processIds) {
+        return processRepository.findSummariesByIdIn(processIds.stream().map(UUID::fromString).toList());
+    }
+
+    @Override
+    public ProcessPageDTO search(ProcessSearchDTO search) {
+        int limit = search.getLimit() == null ? searchMaxPageSize : Math.min(search.getLimit(), searchMaxPageSize);
+
+        if (limit < 1) {
+            throw new WorkflowEngineRuntimeException("Invalid page size %d".formatted(limit));
+        }
+
+        LocalDateTime afterCreatedAt = null;
+        UUID afterId = null;
+
+        if (search.getCursor() != null) {
+            String[] cursor = decodeCursor(search.getCursor());
+            afterCreatedAt = LocalDateTime.parse(cursor[0]);
+            afterId = UUID.fromString(cursor[1]);
+        }
+
+        // One more process tells whether there is a next page
+        List<ProcessSummaryDTO> processes = processRepository.search(search.getFlowName(), search.getStatus(), search.getCreatedFrom(), search.getCreatedTo(),
+                afterCreatedAt, afterId, limit + 1);
+
+        if (processes.size() <= limit) {
+            return new ProcessPageDTO(processes, null);
+        }
+
+        ProcessSummaryDTO last = processes.get(limit - 1);
+
+        return new ProcessPageDTO(processes.subList(0, limit), encodeCursor(last.getCreatedAt() + "," + last.getId()));
+    }
+
+    @Override
+    public CompletableFuture<ProcessSummaryDTO> awaitCompletion(String processId, Duration timeout) {
+        return processCompletionRegistry.await(UUID.fromString(processId), timeout);
+    }
+
     @Override
     public ProcessEntity retry(String processId, String taskId) {
         ProcessEntity process = get(processId);
 
-        FlowEntity flow = flowRepository.findByNameOrderByTaskOrder(process.getFlowName())
-                .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find flow %s".formatted(process.getFlowName())));
+        CompiledFlow flow = flowRegistry.get(process.getFlowName());
 
         TaskInstanceEntity taskInstance = process.getTaskInstances().stream()
                 .filter(instance -> UUID.fromString(taskId).equals(instance.getId()))
                 .findFirst()
                 .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find task instance with id [%s] on process [%s]".formatted(taskId, processId)));
 
-        FlowTaskEntity flowTask = flow.getFlowTask().stream()
-                .filter(ft -> taskInstance.getTaskName().equals(ft.getTask().getName()))
-                .findFirst()
+        CompiledFlowTask step = flow.getStep(taskInstance.getTaskName())
                 .orElseThrow(() -> new WorkflowEngineRuntimeException("Could not find task [%s] on flow [%s]".formatted(taskInstance.getTaskName(), flow.getName())));
 
-        if (Boolean.FALSE.equals(flowTask.getAllowToFail())) {
+        if (!step.isAllowToFail()) {
             throw new WorkflowEngineRuntimeException("A task tagged as \"allowToFail: false\" cannot be retried");
         }
 
@@ -136,14 +295,25 @@ public class WorkflowEngineService implements IWorkflowEngineService {
         log.info("Retrying task {} on process {}", taskInstance.getTaskName(), processId);
 
         process.setStatus(ProcessStatus.IN_PROGRESS);
+        process.setOwner(workflowEngineNode.getId());
 
-        processRepository.save(process);
+        UUID outboxEventId = transactionExecutor.withReturn(() -> {
+            processRepository.save(process);
+            return workflowOutbox.enqueue(step, process);
+        });
 
-        workflowEngineEventPublisher.publishStartTaskEvent(flowTask, process);
+        if (workflowOutbox.isPublishedAfterCommit()) {
+            workflowEngineEventPublisher.publishStartTaskEvent(step.getFlowTask(), process.getId(), outboxEventId, process.getPriority());
+        }
 
         return process;
     }
 
+    @Override
+    public void reloadFlows() {
+        flowRegistry.reload();
+    }
+
     public List<FlowEntity> getFlows() {
         return flowRepository.findAll();
     }
@@ -157,6 +327,7 @@ public class WorkflowEngineService implements IWorkflowEngineService {
     /**
      * When the application is ready, we start a flow validation process to ensure
      * the integrity of the configuration.
+     * Then the processes interrupted by the last stop are either resumed or ended, resuming takes precedence.
      *
      * @throws WorkflowEngineConfigurationException if the configuration is not valid
      */
@@ -168,14 +339,44 @@ public class WorkflowEngineService implements IWorkflowEngineService {
             log.info("Workflow configurations validated.");
         }
 
-        if (Boolean.TRUE.equals(cleanProcessOnStartup)) {
+        flowRegistry.reload();
+
+        if (Boolean.TRUE.equals(continueProcessOnStartup)) {
+            if (Boolean.TRUE.equals(cleanProcessOnStartup)) {
+                log.warn("Both clean-process-on-startup and continue-process-on-startup are enabled, processes are continued");
+            }
+
+            log.info("Continue existing IN_PROGRESS processes ...");
+            int resumed = processResumer.resumeStalledProcesses();
+            log.info("Continued {} existing IN_PROGRESS processes.", resumed);
+        } else if (Boolean.TRUE.equals(cleanProcessOnStartup)) {
             log.info("Check existing IN_PROGRESS processes and tasks ...");
             workflowEngineProcessor.endExistingTasksOnStartup();
             log.info("Checked existing IN_PROGRESS processes and tasks.");
         }
+    }
 
-        if (Boolean.TRUE.equals(continueProcessOnStartup)) {
-            log.info("TODO : Continue processes on startup");
+    private static String encodeCursor(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return creation date and id of the last process of the previous page
+     */
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+
+            if (values.length != 2) {
+                throw new IllegalArgumentException("Expected two values");
+            }
+
+            LocalDateTime.parse(values[0]);
+            UUID.fromString(values[1]);
+
+            return values;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new WorkflowEngineRuntimeException("Invalid search cursor %s".formatted(cursor));
         }
     }
 }
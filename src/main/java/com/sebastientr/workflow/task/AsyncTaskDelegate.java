@@ -0,0 +1,41 @@
+package com.sebastientr.workflow.task;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Task whose work completes asynchronously, for the tasks waiting on remote calls.
+ *
+ * The engine starts the task, then releases its worker : no thread waits for the stage. Once the stage completes, the
+ * result of the task is written and the flow continues on a worker of the engine. A stage completing exceptionally
+ * fails the task, as an exception thrown by {@link TaskDelegate#execute(ContextEntity)}.
+ */
+public abstract class AsyncTaskDelegate extends TaskDelegate {
+    /**
+     * Start the task. The context may be changed until the stage completes, and must not be changed afterwards.
+     *
+     * @param context process context
+     * @return stage completed once the task is done
+     */
+    public abstract CompletionStage<?> executeAsync(ContextEntity context);
+
+    /**
+     * Run the task and wait for it, the engine itself never calls it
+     *
+     * @param context process context
+     */
+    @Override
+    public void execute(ContextEntity context) {
+        try {
+            executeAsync(context).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+}
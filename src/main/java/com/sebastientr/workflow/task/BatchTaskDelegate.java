@@ -0,0 +1,41 @@
+package com.sebastientr.workflow.task;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task run once for the steps of several processes, for the tasks calling bulk APIs.
+ *
+ * The engine gathers the steps of the task waiting to start, up to the batch size of the task or until its linger time
+ * is over, and runs them in a single call. Each process then gets its own task instance, failed or not according to
+ * the failures returned for it. An exception thrown by the call fails every step of the batch.
+ */
+public abstract class BatchTaskDelegate extends TaskDelegate {
+    /**
+     * Run the task for several processes. Each context may be changed, as in {@link TaskDelegate#execute(ContextEntity)}.
+     *
+     * @param contexts contexts of the processes
+     * @return failures of the processes that failed, by index in {@code contexts}, the other ones succeeded
+     */
+    public abstract Map<Integer, Exception> executeBatch(List<ContextEntity> contexts);
+
+    /**
+     * Run the task for a single process, as the engine does for a step started manually or a retry
+     *
+     * @param context process context
+     */
+    @Override
+    public void execute(ContextEntity context) {
+        Map<Integer, Exception> failures = executeBatch(List.of(context));
+        Exception failure = failures == null ? null : failures.get(0);
+
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        } else if (failure != null) {
+            throw new WorkflowEngineRuntimeException(failure.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.sebastientr.workflow.dummy.task.test;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.task.AsyncTaskDelegate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Asynchronous task completed by the tests, through {@link #getPending()}
+ */
+@Slf4j
+@Component
+public class AsyncTestTask extends AsyncTaskDelegate {
+    private final IDummyService dummyService;
+    private final BlockingQueue<CompletableFuture<Void>> pending = new LinkedBlockingQueue<>();
+
+    public AsyncTestTask(IDummyService dummyService) {
+        this.dummyService = dummyService;
+    }
+
+    @Override
+    public CompletionStage<?> executeAsync(ContextEntity context) {
+        log.info("Executing {}", this.getClass().getName());
+        dummyService.second("test");
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        pending.add(completion);
+        return completion;
+    }
+
+    public BlockingQueue<CompletableFuture<Void>> getPending() {
+        return pending;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sebastientr.workflow.dummy.task.test;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.task.BatchTaskDelegate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Batch task recording the size of its batches, the contexts with a {@code fail} variable fail.
+ * The {@code onBatch} hook runs during each call.
+ */
+@Slf4j
+@Component
+public class BatchTestTask extends BatchTaskDelegate {
+    private final IDummyService dummyService;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private volatile Runnable onBatch = () -> { };
+
+    public BatchTestTask(IDummyService dummyService) {
+        this.dummyService = dummyService;
+    }
+
+    @Override
+    public Map<Integer, Exception> executeBatch(List<ContextEntity> contexts) {
+        log.info("Executing {} for {} contexts", this.getClass().getName(), contexts.size());
+        batchSizes.add(contexts.size());
+        dummyService.second("test");
+        onBatch.run();
+
+        Map<Integer, Exception> failures = new HashMap<>();
+        for (int i = 0; i < contexts.size(); i++) {
+            if (contexts.get(i).getVariable("fail") != null) {
+                failures.put(i, new WorkflowEngineRuntimeException("Rejected by the bulk API"));
+            }
+        }
+
+        return failures;
+    }
+
+    public List<Integer> getBatchSizes() {
+        return batchSizes;
+    }
+
+    public void setOnBatch(Runnable onBatch) {
+        this.onBatch = onBatch;
+    }
+}
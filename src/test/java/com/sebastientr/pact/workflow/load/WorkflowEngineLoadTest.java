@@ -0,0 +1,183 @@
+package com.sebastientr.workflow.load;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.dto.event.EndProcessDTO;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.queuing.WorkflowEvent;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End to end load of the test flow on H2. Run with -Dload=true, the load is set by :
+ * - load.processes : number of processes to start, 10000 by default
+ * - load.rate : processes started per second, 200 by default
+ * - load.clients : threads starting the processes, 4 by default
+ * - load.task-duration-ms / load.task-jitter-ms : duration of each task, plus a random jitter, 0 by default
+ * - load.failure-rate : probability of each task to fail, 0 by default
+ * - load.timeout-seconds : time given to the processes to end, 600 by default
+ * The engine itself is configured with the usual properties, e.g. -Dworkflow-engine.executor.max-size=32
+ *
+ * The time to completion of a process is measured from its scheduled start, so a late start is part of the latency.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "load", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.sebastientr.workflow=WARN",
+        "workflow-engine.clean-process-on-startup=false",
+        "workflow-engine.continue-process-on-startup=false"
+})
+class WorkflowEngineLoadTest {
+    private static final int PROCESSES = Integer.getInteger("load.processes", 10_000);
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 4);
+    private static final long TASK_DURATION_MS = Long.getLong("load.task-duration-ms", 0);
+    private static final long TASK_JITTER_MS = Long.getLong("load.task-jitter-ms", 0);
+    private static final double FAILURE_RATE = Double.parseDouble(System.getProperty("load.failure-rate", "0"));
+    private static final long TIMEOUT_SECONDS = Long.getLong("load.timeout-seconds", 600);
+
+    private static final Map<UUID, Long> ENDS = new ConcurrentHashMap<>();
+
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class LoadConfiguration {
+        @Bean
+        @Primary
+        IDummyService loadDummyService() {
+            return new LoadDummyService();
+        }
+
+        @Bean
+        EndProcessRecorder endProcessRecorder() {
+            return new EndProcessRecorder();
+        }
+    }
+
+    /**
+     * Test tasks taking {@code load.task-duration-ms} and failing with a {@code load.failure-rate} probability
+     */
+    static class LoadDummyService implements IDummyService {
+        @Override
+        public String first(String arg) {
+            return run("first - %s".formatted(arg));
+        }
+
+        @Override
+        public String second(String arg) {
+            return run("second - %s".formatted(arg));
+        }
+
+        @Override
+        public String third(String arg) {
+            return run("third - %s".formatted(arg));
+        }
+
+        private static String run(String result) {
+            long duration = TASK_DURATION_MS + (TASK_JITTER_MS > 0 ? ThreadLocalRandom.current().nextLong(TASK_JITTER_MS + 1) : 0);
+
+            if (duration > 0) {
+                sleepMillis(duration);
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < FAILURE_RATE) {
+                throw new WorkflowEngineRuntimeException("Simulated failure");
+            }
+
+            return result;
+        }
+    }
+
+    static class EndProcessRecorder {
+        @EventListener(condition = "{event.type == T(com.sebastientr.workflow.queuing.WorkflowEvent.EventType).END_PROCESS}")
+        public void handleEndProcessEvent(WorkflowEvent<EndProcessDTO> event) {
+            ENDS.put(event.getWhat().getProcessId(), System.nanoTime());
+        }
+    }
+
+    @Test
+    void testLoad() throws InterruptedException {
+        Map<UUID, Long> starts = new ConcurrentHashMap<>();
+        AtomicInteger next = new AtomicInteger();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long begin = System.nanoTime();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+        for (int c = 0; c < CLIENTS; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < PROCESSES) {
+                    long scheduled = begin + i * intervalNanos;
+                    LockSupport.parkNanos(scheduled - System.nanoTime());
+                    starts.put(workflowEngineService.start("test-flow", new ContextEntity()).getId(), scheduled);
+                }
+            });
+        }
+
+        clients.shutdown();
+        Assertions.assertTrue(clients.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Processes could not be started in time");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (ENDS.size() < PROCESSES && System.nanoTime() < deadline) {
+            sleepMillis(100);
+        }
+
+        Assertions.assertEquals(PROCESSES, ENDS.size(), "Processes did not end in time");
+
+        long[] latencies = starts.entrySet().stream()
+                .mapToLong(entry -> ENDS.get(entry.getKey()) - entry.getValue())
+                .sorted()
+                .toArray();
+        long elapsedNanos = ENDS.values().stream().mapToLong(Long::longValue).max().orElseThrow() - begin;
+
+        log.warn("{} processes at {}/s, tasks of {} (+{}) ms failing at {}", PROCESSES, RATE, TASK_DURATION_MS, TASK_JITTER_MS, FAILURE_RATE);
+        log.warn("Throughput : {} processes/s", PROCESSES * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1));
+        log.warn("Time to completion : p50 {} ms, p99 {} ms, p999 {} ms, max {} ms",
+                percentileMillis(latencies, 0.5), percentileMillis(latencies, 0.99), percentileMillis(latencies, 0.999), percentileMillis(latencies, 1));
+        log.warn("Statuses : {}", jdbcTemplate.queryForList("SELECT status, COUNT(*) AS processes FROM workflow_process GROUP BY status"));
+
+        Assertions.assertTrue(Arrays.stream(latencies).allMatch(latency -> latency > 0));
+    }
+
+    private static String percentileMillis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return "%.2f".formatted(sorted[Math.max(index, 0)] / 1_000_000.0);
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.sebastientr.workflow.metrics;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.ProcessResumer;
+import com.sebastientr.workflow.process.TransactionExecutor;
+import com.sebastientr.workflow.process.WorkflowEngineProcessor;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@SpringBootTest(properties = {
+        // Own database, so the recovery only ends the processes of this test
+        "spring.datasource.url=jdbc:h2:mem:metrics-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "workflow-engine.outbox.poll-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class WorkflowEngineMetricsTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private WorkflowEngineMetrics workflowEngineMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkflowEngineProcessor workflowEngineProcessor;
+
+    @Autowired
+    private ProcessResumer processResumer;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @TestConfiguration
+    static class MeterRegistryConfiguration {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void testHotPathIsMeasured() {
+        workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        for (String task : List.of("FirstTestTask", "SecondTestTask", "ThirdTestTask")) {
+            Assertions.assertEquals(1, meterRegistry.get("workflow.engine.task.execution").tag("task", task).tag("outcome", "SUCCESS").timer().count());
+            Assertions.assertEquals(1, meterRegistry.get("workflow.engine.task.queue.wait").tag("task", task).timer().count());
+            Assertions.assertEquals(1, meterRegistry.get("workflow.engine.step.database").tag("task", task).timer().count());
+        }
+
+        Assertions.assertEquals(1, meterRegistry.get("workflow.engine.process.started").tag("flow", "test-flow").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "SUCCESS").counter().count());
+        Assertions.assertEquals(0, meterRegistry.get("workflow.engine.process.running").gauge().value());
+        Assertions.assertEquals(0, workflowEngineMetrics.getRunningProcesses());
+    }
+
+    @Test
+    void testStartAllCountsEveryProcess() {
+        workflowEngineService.startAll("test-flow", List.of(new ContextEntity(), new ContextEntity(), new ContextEntity()));
+        sleep(2);
+
+        Assertions.assertEquals(3, meterRegistry.get("workflow.engine.process.started").tag("flow", "test-flow").counter().count());
+        Assertions.assertEquals(3, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "SUCCESS").counter().count());
+        Assertions.assertEquals(3, meterRegistry.get("workflow.engine.task.execution").tag("task", "ThirdTestTask").timer().count());
+    }
+
+    @Test
+    void testStartupRecoveryCountsEndedProcesses() {
+        // The second task is allowed to fail, the first one is not
+        newProcess(Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.IN_PROGRESS));
+        newProcess(Map.of(1, TaskStatus.IN_PROGRESS));
+        newProcess(Map.of());
+
+        workflowEngineProcessor.endExistingTasksOnStartup();
+
+        Assertions.assertEquals(1, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "WARNING").counter().count());
+        Assertions.assertEquals(2, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "ERROR").counter().count());
+    }
+
+    @Test
+    void testResumerCountsEndedProcesses() {
+        newProcess(Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.SUCCESS, 3, TaskStatus.SUCCESS));
+        newProcess(Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.ERROR, 3, TaskStatus.SUCCESS));
+
+        Assertions.assertEquals(0, processResumer.resumeStalledProcesses());
+
+        Assertions.assertEquals(1, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "SUCCESS").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("workflow.engine.process.ended").tag("flow", "test-flow").tag("status", "WARNING").counter().count());
+    }
+
+    /**
+     * Write an IN_PROGRESS process of test-flow without owner, as left by a stopped node
+     */
+    private void newProcess(Map<Integer, TaskStatus> history) {
+        transactionExecutor.withoutReturn(() -> {
+            ContextEntity context = new ContextEntity();
+            ProcessEntity process = new ProcessEntity("test-flow", context, 3);
+            process.setStatus(ProcessStatus.IN_PROGRESS);
+            context.setProcess(process);
+
+            history.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> {
+                        var task = flowRegistry.get("test-flow").getStep(entry.getKey()).orElseThrow().getFlowTask().getTask();
+                        process.getTaskInstances().add(new TaskInstanceEntity(process, task, entry.getValue()));
+                    });
+
+            processRepository.save(process);
+        });
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.dummy.task.test.AsyncTestTask;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.metrics.WorkflowEngineMetrics;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiter;
+import com.sebastientr.workflow.queuing.limiter.TaskLimiters;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@SpringBootTest(properties = {
+        // Own database, so the dispatchers of the other cached test contexts do not claim the released events
+        "spring.datasource.url=jdbc:h2:mem:async-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class AsyncTaskTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private WorkflowEngineExecutor workflowEngineExecutor;
+
+    @Autowired
+    private WorkflowEngineMetrics workflowEngineMetrics;
+
+    @Autowired
+    private AsyncTestTask asyncTestTask;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TaskLimiters taskLimiters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The second step of test-flow is the asynchronous task
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE config_workflow_task SET name = 'AsyncTestTask' WHERE name = 'SecondTestTask'");
+        flowRegistry.reload();
+    }
+
+    @AfterEach
+    void reset() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_task SET name = 'SecondTestTask', max_concurrency = NULL WHERE name = 'AsyncTestTask'");
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET timeout_ms = NULL");
+    }
+
+    @Test
+    void testNoWorkerWaitsForTheTask() {
+        List<ProcessEntity> processes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            processes.add(workflowEngineService.start("test-flow", new ContextEntity()));
+        }
+        sleep(1);
+
+        // Every process waits for its task, while no worker is busy
+        Assertions.assertEquals(20, asyncTestTask.getPending().size());
+        Assertions.assertEquals(0, workflowEngineExecutor.getActiveCount());
+        Assertions.assertEquals(20, workflowEngineMetrics.getRunningProcesses());
+        processes.forEach(process -> Assertions.assertEquals(ProcessStatus.IN_PROGRESS,
+                workflowEngineService.get(process.getId().toString()).getStatus()));
+
+        asyncTestTask.getPending().forEach(completion -> completion.complete(null));
+        sleep(1);
+
+        Assertions.assertEquals(0, workflowEngineMetrics.getRunningProcesses());
+        for (ProcessEntity process : processes) {
+            ProcessEntity processRetrieved = workflowEngineService.get(process.getId().toString());
+
+            Assertions.assertEquals(ProcessStatus.SUCCESS, processRetrieved.getStatus());
+            Assertions.assertEquals(List.of(TaskStatus.SUCCESS, TaskStatus.SUCCESS, TaskStatus.SUCCESS),
+                    processRetrieved.getTaskInstances().stream().map(TaskInstanceEntity::getStatus).toList());
+        }
+    }
+
+    @Test
+    void testConcurrencyLimitCoversTheStage() {
+        jdbcTemplate.update("UPDATE config_workflow_task SET max_concurrency = 1 WHERE name = 'AsyncTestTask'");
+        flowRegistry.reload();
+
+        ProcessEntity first = workflowEngineService.start("test-flow", new ContextEntity());
+        ProcessEntity second = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // The first stage keeps the slot while it is in flight, the second step waits for it
+        TaskLimiter limiter = taskLimiters.get(flowRegistry.get("test-flow").getStep(2).orElseThrow().getFlowTask().getTask());
+        Assertions.assertEquals(1, asyncTestTask.getPending().size());
+        Assertions.assertEquals(1, limiter.getRunning());
+        Assertions.assertEquals(1, limiter.getQueued());
+
+        asyncTestTask.getPending().remove().complete(null);
+        sleep(1);
+
+        Assertions.assertEquals(1, asyncTestTask.getPending().size());
+        Assertions.assertEquals(1, limiter.getRunning());
+        Assertions.assertEquals(0, limiter.getQueued());
+
+        asyncTestTask.getPending().remove().complete(null);
+        sleep(1);
+
+        Assertions.assertEquals(0, limiter.getRunning());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(first.getId().toString()).getStatus());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(second.getId().toString()).getStatus());
+    }
+
+    @Test
+    void testFailedStageFailsTheTask() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        asyncTestTask.getPending().remove().completeExceptionally(new IllegalStateException("Remote failure"));
+        sleep(1);
+
+        // The task is allowed to fail, the flow goes on
+        process = workflowEngineService.get(process.getId().toString());
+        Assertions.assertEquals(ProcessStatus.WARNING, process.getStatus());
+        Assertions.assertEquals(TaskStatus.ERROR, process.getTaskInstances().get(1).getStatus());
+        Assertions.assertEquals("Remote failure", process.getTaskInstances().get(1).getError());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+    }
+
+    @Test
+    void testTimeout() {
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET timeout_ms = 300 WHERE task_order = 2");
+        flowRegistry.reload();
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+        CompletableFuture<Void> completion = asyncTestTask.getPending().remove();
+
+        Assertions.assertTrue(completion.isCancelled());
+        Assertions.assertEquals(ProcessStatus.WARNING, process.getStatus());
+        Assertions.assertEquals("Task AsyncTestTask timed out after 300 ms", process.getTaskInstances().get(1).getError());
+    }
+
+    @Test
+    void testCompletionOnSaturatedExecutorIsLeftToTheOutbox() throws InterruptedException {
+        UUID processId = workflowEngineService.start("test-flow", new ContextEntity()).getId();
+        CompletableFuture<Void> completion = asyncTestTask.getPending().poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(completion);
+
+        // The worker of the first step publishes the asynchronous step before it leaves the process
+        awaitRunningProcesses(1);
+
+        // Every worker is busy and the queue is full
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        while (workflowEngineExecutor.execute(blocking)) {
+            // Fill the queue
+        }
+
+        try {
+            // The completing thread does not write the step
+            completion.complete(null);
+
+            ProcessEntity processRetrieved = workflowEngineService.get(processId.toString());
+            Assertions.assertEquals(ProcessStatus.IN_PROGRESS, processRetrieved.getStatus());
+            Assertions.assertEquals(1, processRetrieved.getTaskInstances().size());
+            Assertions.assertEquals(0, workflowEngineMetrics.getRunningProcesses());
+
+            OutboxEventEntity event = outboxEventRepository.findAll().stream()
+                    .filter(outboxEvent -> outboxEvent.getProcessId().equals(processId))
+                    .findFirst().orElseThrow();
+            Assertions.assertNull(event.getLockedUntil());
+        } finally {
+            release.countDown();
+        }
+
+        // The dispatchers start the task again once the executor has room
+        CompletableFuture<Void> restarted = asyncTestTask.getPending().poll(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(restarted);
+        restarted.complete(null);
+        sleep(1);
+
+        ProcessEntity process = workflowEngineService.get(processId.toString());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+    }
+
+    private void awaitRunningProcesses(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (workflowEngineMetrics.getRunningProcesses() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        Assertions.assertEquals(expected, workflowEngineMetrics.getRunningProcesses());
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
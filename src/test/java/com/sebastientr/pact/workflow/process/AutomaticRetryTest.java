@@ -0,0 +1,136 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+
+@Slf4j
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class AutomaticRetryTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private IDummyService dummyService;
+
+    @AfterEach
+    void resetRetryPolicies() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET retry_max_attempts = NULL, retry_delay_ms = NULL, retry_on = NULL");
+    }
+
+    @Test
+    void testTransientFailureIsRetried() {
+        setRetryPolicy(3, 100, null);
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new IllegalStateException("Transient failure %d".formatted(calls.get()));
+            }
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(2);
+
+        process = workflowEngineService.get(process.getId().toString());
+        List<TaskStatus> statuses = process.getTaskInstances().stream().map(TaskInstanceEntity::getStatus).toList();
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(List.of(TaskStatus.RETRIED, TaskStatus.RETRIED, TaskStatus.SUCCESS, TaskStatus.SUCCESS, TaskStatus.SUCCESS), statuses);
+        Assertions.assertEquals("Transient failure 1", process.getTaskInstances().get(0).getError());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+        Assertions.assertEquals(0, process.getTaskErrorCount());
+    }
+
+    @Test
+    void testRetriesAreExhausted() {
+        setRetryPolicy(2, 100, null);
+        doThrow(new IllegalStateException("Permanent failure")).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(2);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.ERROR, process.getStatus());
+        Assertions.assertEquals(List.of(TaskStatus.RETRIED, TaskStatus.ERROR), process.getTaskInstances().stream().map(TaskInstanceEntity::getStatus).toList());
+        Assertions.assertEquals(1, process.getTaskErrorCount());
+    }
+
+    @Test
+    void testOnlyConfiguredExceptionsAreRetried() {
+        setRetryPolicy(3, 100, "java.io.UncheckedIOException, java.util.concurrent.TimeoutException");
+        doThrow(new IllegalStateException("Not retryable")).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.ERROR, process.getStatus());
+        Assertions.assertEquals(List.of(TaskStatus.ERROR), process.getTaskInstances().stream().map(TaskInstanceEntity::getStatus).toList());
+    }
+
+    @Test
+    void testPendingRetryIsPersisted() {
+        setRetryPolicy(2, 3000, null);
+        doThrow(new IllegalStateException("Transient failure")).doCallRealMethod().when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // No worker waits for the retry, it is an outbox event due later
+        Assertions.assertEquals(ProcessStatus.IN_PROGRESS, workflowEngineService.get(process.getId().toString()).getStatus());
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_outbox_event WHERE process_id = ?",
+                Integer.class, process.getId()));
+
+        sleep(3);
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(process.getId().toString()).getStatus());
+    }
+
+    private void setRetryPolicy(int maxAttempts, long delayMs, String retryOn) {
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET retry_max_attempts = ?, retry_delay_ms = ?, retry_on = ? WHERE task_order = 1", maxAttempts, delayMs, retryOn);
+        flowRegistry.reload();
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
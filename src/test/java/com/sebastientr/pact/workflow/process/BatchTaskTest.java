@@ -0,0 +1,165 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.dummy.task.test.BatchTestTask;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.batch.TaskBatcher;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@Slf4j
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class BatchTaskTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private BatchTestTask batchTestTask;
+
+    @Autowired
+    private TaskBatcher taskBatcher;
+
+    @Autowired
+    private WorkflowEngineExecutor workflowEngineExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The second step of test-flow is the batch task
+     */
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE config_workflow_task SET name = 'BatchTestTask', batch_max_size = 10, batch_linger_ms = 300 WHERE name = 'SecondTestTask'");
+        flowRegistry.reload();
+    }
+
+    @AfterEach
+    void reset() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_task SET name = 'SecondTestTask', batch_max_size = NULL, batch_linger_ms = NULL WHERE name = 'BatchTestTask'");
+    }
+
+    @Test
+    void testStepsAreBatchedAcrossProcesses() {
+        List<ContextEntity> contexts = IntStream.range(0, 25).mapToObj(i -> new ContextEntity()).toList();
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", contexts);
+        sleep(2);
+
+        // Two full batches, then the rest once the linger time is over
+        Assertions.assertEquals(25, batchTestTask.getBatchSizes().stream().mapToInt(Integer::intValue).sum());
+        Assertions.assertTrue(batchTestTask.getBatchSizes().size() <= 5, "Batches : %s".formatted(batchTestTask.getBatchSizes()));
+        Assertions.assertTrue(batchTestTask.getBatchSizes().stream().allMatch(size -> size <= 10));
+        Assertions.assertEquals(0, taskBatcher.size());
+
+        processes.forEach(process -> {
+            ProcessEntity processRetrieved = workflowEngineService.get(process.getId().toString());
+            Assertions.assertEquals(ProcessStatus.SUCCESS, processRetrieved.getStatus());
+            Assertions.assertEquals(3, processRetrieved.getTaskInstances().size());
+        });
+    }
+
+    @Test
+    void testFailuresAreSplitByProcess() {
+        List<ProcessEntity> processes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ContextEntity context = new ContextEntity();
+            if (i % 2 == 1) {
+                context.setVariable("fail", true);
+            }
+            processes.add(workflowEngineService.start("test-flow", context));
+        }
+        sleep(2);
+
+        Assertions.assertEquals(List.of(4), batchTestTask.getBatchSizes());
+
+        for (int i = 0; i < processes.size(); i++) {
+            ProcessEntity process = workflowEngineService.get(processes.get(i).getId().toString());
+
+            // The task is allowed to fail, the flow goes on
+            if (i % 2 == 1) {
+                Assertions.assertEquals(ProcessStatus.WARNING, process.getStatus());
+                Assertions.assertEquals(TaskStatus.ERROR, process.getTaskInstances().get(1).getStatus());
+                Assertions.assertEquals("Rejected by the bulk API", process.getTaskInstances().get(1).getError());
+            } else {
+                Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+            }
+            Assertions.assertEquals(3, process.getTaskInstances().size());
+        }
+    }
+
+    @Test
+    void testSingleStepWaitsForTheLingerTime() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        Assertions.assertEquals(List.of(1), batchTestTask.getBatchSizes());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(process.getId().toString()).getStatus());
+    }
+
+    @Test
+    void testSaturatedExecutorDoesNotRunTheBatchAgain() {
+        // Every worker is busy and the queue is full while the bulk API is called
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        batchTestTask.setOnBatch(() -> {
+            while (workflowEngineExecutor.execute(blocking)) {
+                // Fill the queue
+            }
+        });
+
+        List<ContextEntity> contexts = IntStream.range(0, 4).mapToObj(i -> new ContextEntity()).toList();
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", contexts);
+        sleep(1);
+        release.countDown();
+
+        // The third steps rejected meanwhile are published again by the dispatchers
+        sleep(3);
+
+        Assertions.assertEquals(List.of(4), batchTestTask.getBatchSizes());
+        processes.forEach(process -> {
+            ProcessEntity processRetrieved = workflowEngineService.get(process.getId().toString());
+            Assertions.assertEquals(ProcessStatus.SUCCESS, processRetrieved.getStatus());
+            Assertions.assertEquals(3, processRetrieved.getTaskInstances().size());
+        });
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -117,6 +117,18 @@ class ConfigurationLoaderTest {
         Assertions.assertEquals("Could not find flowTask with order 1 for flow wrong-flow", exception.getMessage());
     }
 
+    @Test
+    void testWithNonConsecutiveParallelGroup() {
+        FlowEntity flow = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
+        flow.getFlowTask().get(0).setParallelGroup(1);
+        flow.getFlowTask().get(2).setParallelGroup(1);
+        flowTaskRepository.saveAll(flow.getFlowTask());
+
+        WorkflowEngineConfigurationException exception = Assertions.assertThrows(WorkflowEngineConfigurationException.class, () -> configurationLoader.validateFlows());
+
+        Assertions.assertEquals("The flowTasks of parallel group 1 do not have consecutive orders for flow test-flow", exception.getMessage());
+    }
+
     @Test
     void testWithEmptyFlow() {
         FlowEntity flow = new FlowEntity();
@@ -0,0 +1,118 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.outbox.OutboxTimer;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class DelayedStepTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private OutboxTimer outboxTimer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void resetDelays() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET delay_ms = NULL, delay_until = NULL");
+    }
+
+    @Test
+    void testDelayedStep() {
+        setDelay(2, 2000L, null);
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // The process waits in the outbox, the first task only is done
+        process = workflowEngineService.get(process.getId().toString());
+        Assertions.assertEquals(ProcessStatus.IN_PROGRESS, process.getStatus());
+        Assertions.assertEquals(1, process.getTaskInstances().size());
+        Assertions.assertEquals(1, outboxTimer.size());
+        Assertions.assertEquals(1, countOutboxEvents(process));
+
+        sleep(2);
+
+        process = workflowEngineService.get(process.getId().toString());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        Assertions.assertEquals(0, outboxTimer.size());
+    }
+
+    @Test
+    void testStepDelayedUntilContextDate() {
+        // Two hours before departure
+        setDelay(1, -7_200_000L, "departure");
+
+        ContextEntity context = new ContextEntity();
+        context.setVariable("departure", LocalDateTime.now().plusDays(2).toString());
+        ProcessEntity process = workflowEngineService.start("test-flow", context);
+        sleep(1);
+
+        // Due after the outbox lease : the event is left to the dispatchers, nothing is held in memory
+        String owner = jdbcTemplate.queryForObject("SELECT owner FROM workflow_outbox_event WHERE process_id = ?", String.class, process.getId());
+        LocalDateTime availableAt = jdbcTemplate.queryForObject("SELECT available_at FROM workflow_outbox_event WHERE process_id = ?", LocalDateTime.class, process.getId());
+
+        Assertions.assertNull(owner);
+        Assertions.assertTrue(availableAt.isAfter(LocalDateTime.now().plusDays(2).minusHours(2).minusMinutes(1)));
+        Assertions.assertTrue(availableAt.isBefore(LocalDateTime.now().plusDays(2).minusHours(2)));
+        Assertions.assertEquals(0, outboxTimer.size());
+        Assertions.assertEquals(0, workflowEngineService.get(process.getId().toString()).getTaskInstances().size());
+    }
+
+    @Test
+    void testPastOrMissingDateDoesNotDelay() {
+        setDelay(1, null, "departure");
+
+        ContextEntity past = new ContextEntity();
+        past.setVariable("departure", LocalDateTime.now().minusHours(1).toString());
+        ProcessEntity pastProcess = workflowEngineService.start("test-flow", past);
+        ProcessEntity missingProcess = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(pastProcess.getId().toString()).getStatus());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(missingProcess.getId().toString()).getStatus());
+    }
+
+    private void setDelay(int taskOrder, Long delayMs, String delayUntil) {
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET delay_ms = ?, delay_until = ? WHERE task_order = ?", delayMs, delayUntil, taskOrder);
+        flowRegistry.reload();
+    }
+
+    private int countOutboxEvents(ProcessEntity process) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_outbox_event WHERE process_id = ?", Integer.class, process.getId());
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
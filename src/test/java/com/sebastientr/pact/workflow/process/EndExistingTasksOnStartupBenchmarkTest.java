@@ -0,0 +1,77 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recovery of a large IN_PROGRESS backlog. Run with -Dbenchmark=true, the number of processes is set by -Dbenchmark.rows
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:recovery-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "spring.jpa.show-sql=false",
+        "workflow-engine.clean-process-on-startup=false",
+        "workflow-engine.continue-process-on-startup=false"
+})
+class EndExistingTasksOnStartupBenchmarkTest {
+    private static final int BATCH_SIZE = 10_000;
+
+    @Autowired
+    private WorkflowEngineProcessor workflowEngineProcessor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testEndExistingTasksOnStartup() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        insertInProgressProcesses(rows);
+
+        long start = System.nanoTime();
+        workflowEngineProcessor.endExistingTasksOnStartup();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("Ended {} IN_PROGRESS processes in {} ms ({} processes/s)", rows, elapsedMs, rows * 1000L / Math.max(elapsedMs, 1));
+
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_process WHERE status = ?", Integer.class, ProcessStatus.IN_PROGRESS.name()));
+        Assertions.assertEquals(rows, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_task_instance WHERE status = ?", Integer.class, TaskStatus.ERROR.name()));
+    }
+
+    /**
+     * Every process has a SUCCESS first task and an IN_PROGRESS second task
+     */
+    private void insertInProgressProcesses(int rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int offset = 0; offset < rows; offset += BATCH_SIZE) {
+            List<Object[]> processes = new ArrayList<>();
+            List<Object[]> taskInstances = new ArrayList<>();
+
+            for (int i = offset; i < Math.min(rows, offset + BATCH_SIZE); i++) {
+                UUID processId = UUID.randomUUID();
+                processes.add(new Object[]{processId, now, now});
+                taskInstances.add(new Object[]{UUID.randomUUID(), processId, "FirstTestTask", TaskStatus.SUCCESS.name(), now, now});
+                taskInstances.add(new Object[]{UUID.randomUUID(), processId, "SecondTestTask", TaskStatus.IN_PROGRESS.name(), now, now});
+            }
+
+            jdbcTemplate.batchUpdate("INSERT INTO workflow_process (id, flow_name, status, task_total_count, task_success_count, task_error_count, created_by, created_at, updated_at) " +
+                    "VALUES (?, 'test-flow', 'IN_PROGRESS', 3, 1, 0, 'System', ?, ?)", processes);
+            jdbcTemplate.batchUpdate("INSERT INTO workflow_task_instance (id, process_id, task_name, status, created_by, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, 'System', ?, ?)", taskInstances);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.repository.FlowRepository;
+import com.sebastientr.workflow.domain.repository.FlowTaskRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.dummy.task.test.FirstTestTask;
+import com.sebastientr.workflow.dummy.task.test.SecondTestTask;
+import com.sebastientr.workflow.dummy.task.test.ThirdTestTask;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ParallelGroupTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRepository flowRepository;
+
+    @Autowired
+    private FlowTaskRepository flowTaskRepository;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @SpyBean
+    private IDummyService dummyService;
+
+    @SpyBean
+    private FirstTestTask firstTestTask;
+
+    @SpyBean
+    private SecondTestTask secondTestTask;
+
+    @SpyBean
+    private ThirdTestTask thirdTestTask;
+
+    /**
+     * FirstTestTask and SecondTestTask run in parallel, ThirdTestTask runs once both are done
+     */
+    @BeforeEach
+    void setUp() {
+        FlowEntity flow = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
+
+        for (FlowTaskEntity flowTask : flow.getFlowTask().subList(0, 2)) {
+            flowTask.setParallelGroup(1);
+        }
+
+        flowTaskRepository.saveAll(flow.getFlowTask());
+        flowRegistry.reload();
+    }
+
+    @Test
+    void testBranchesRunConcurrently() {
+        // Each branch waits for the other one to be started
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicBoolean concurrent = new AtomicBoolean(true);
+
+        doAnswer(invocation -> {
+            started.countDown();
+            concurrent.compareAndSet(true, started.await(5, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+        doAnswer(invocation -> {
+            started.countDown();
+            concurrent.compareAndSet(true, started.await(5, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).when(dummyService).second(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        process = awaitEnd(process);
+
+        Assertions.assertTrue(concurrent.get());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+        Assertions.assertEquals(0, process.getTaskErrorCount());
+        Assertions.assertEquals(0, process.getPendingBranchCount());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        verify(dummyService, times(1)).third(anyString());
+    }
+
+    @Test
+    void testFailingBranchEndsTheProcessAtTheJoin() {
+        doThrow(new WorkflowEngineRuntimeException("First branch failed")).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        process = awaitEnd(process);
+
+        Assertions.assertEquals(ProcessStatus.ERROR, process.getStatus());
+        Assertions.assertEquals(1, process.getTaskSuccessCount());
+        Assertions.assertEquals(1, process.getTaskErrorCount());
+        Assertions.assertEquals(2, process.getTaskInstances().size());
+        verify(dummyService, times(1)).second(anyString());
+        verify(dummyService, never()).third(anyString());
+    }
+
+    @Test
+    void testBranchAllowedToFailContinues() {
+        doThrow(new WorkflowEngineRuntimeException("Second branch failed")).when(dummyService).second(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        process = awaitEnd(process);
+
+        Assertions.assertEquals(ProcessStatus.WARNING, process.getStatus());
+        Assertions.assertEquals(2, process.getTaskSuccessCount());
+        Assertions.assertEquals(1, process.getTaskErrorCount());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        verify(dummyService, times(1)).third(anyString());
+    }
+
+    @Test
+    void testBranchesKeepEachOtherVariables() {
+        // Both branches load the context before any of them writes it
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicReference<Map<String, Object>> joined = new AtomicReference<>();
+
+        doAnswer(invocation -> {
+            started.countDown();
+            started.await(5, TimeUnit.SECONDS);
+            invocation.<ContextEntity>getArgument(0).setVariable("first", "done");
+            return invocation.callRealMethod();
+        }).when(firstTestTask).execute(any());
+        doAnswer(invocation -> {
+            started.countDown();
+            started.await(5, TimeUnit.SECONDS);
+            invocation.<ContextEntity>getArgument(0).setVariable("second", 2);
+            return invocation.callRealMethod();
+        }).when(secondTestTask).execute(any());
+        doAnswer(invocation -> {
+            joined.set(Map.copyOf(invocation.<ContextEntity>getArgument(0).getVariables()));
+            return invocation.callRealMethod();
+        }).when(thirdTestTask).execute(any());
+
+        ContextEntity context = new ContextEntity();
+        context.setVariable("initial", true);
+
+        ProcessEntity process = workflowEngineService.start("test-flow", context);
+        process = awaitEnd(process);
+
+        Map<String, Object> expected = Map.of("initial", true, "first", "done", "second", 2);
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(expected, joined.get());
+        Assertions.assertEquals(expected, process.getContext().getVariables());
+    }
+
+    @Test
+    void testBranchRetriedWhileTheOtherOneEnds() {
+        FlowEntity flow = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
+        flow.getFlowTask().get(0).setRetryMaxAttempts(2);
+        flow.getFlowTask().get(0).setRetryDelayMs(100L);
+        flowTaskRepository.saveAll(flow.getFlowTask());
+        flowRegistry.reload();
+
+        // Both branches load the process, then the second one ends before the first attempt of the first one fails
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                started.countDown();
+                started.await(5, TimeUnit.SECONDS);
+                Thread.sleep(500);
+                throw new WorkflowEngineRuntimeException("Transient failure");
+            }
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+        doAnswer(invocation -> {
+            started.countDown();
+            started.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(dummyService).second(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        process = awaitEnd(process);
+
+        // The retry did not write the state of the process loaded before the second branch ended
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+        Assertions.assertEquals(0, process.getTaskErrorCount());
+        Assertions.assertEquals(0, process.getPendingBranchCount());
+        Assertions.assertEquals(4, process.getTaskInstances().size());
+        verify(dummyService, times(1)).third(anyString());
+    }
+
+    private ProcessEntity awaitEnd(ProcessEntity process) {
+        workflowEngineService.awaitCompletion(process.getId().toString(), Duration.ofSeconds(10)).join();
+        return workflowEngineService.get(process.getId().toString());
+    }
+}
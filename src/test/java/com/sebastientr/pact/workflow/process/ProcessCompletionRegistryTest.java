@@ -0,0 +1,155 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+@Slf4j
+@SpringBootTest(properties = {"workflow-engine.completion.poll-interval-ms=3600000", "workflow-engine.bulk.chunk-size=2"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ProcessCompletionRegistryTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private ProcessCompletionRegistry processCompletionRegistry;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @SpyBean
+    private IDummyService dummyService;
+
+    @Test
+    void testCompletedByEndProcessEvent() throws Exception {
+        doAnswer(invocation -> {
+            sleep(1);
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        CompletableFuture<ProcessSummaryDTO> completion = workflowEngineService.awaitCompletion(process.getId().toString(), Duration.ofSeconds(10));
+
+        Assertions.assertFalse(completion.isDone());
+
+        ProcessSummaryDTO summary = completion.get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(process.getId(), summary.getId());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, summary.getStatus());
+        Assertions.assertEquals(3, summary.getTaskSuccessCount());
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    @Test
+    void testAlreadyEndedProcess() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        CompletableFuture<ProcessSummaryDTO> completion = workflowEngineService.awaitCompletion(process.getId().toString(), Duration.ofSeconds(10));
+
+        Assertions.assertTrue(completion.isDone());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, completion.join().getStatus());
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    @Test
+    void testTimeout() {
+        doAnswer(invocation -> {
+            sleep(2);
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        CompletableFuture<ProcessSummaryDTO> completion = workflowEngineService.awaitCompletion(process.getId().toString(), Duration.ofMillis(200));
+
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> completion.get(5, TimeUnit.SECONDS));
+
+        Assertions.assertInstanceOf(TimeoutException.class, exception.getCause());
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    @Test
+    void testUnknownProcess() {
+        CompletableFuture<ProcessSummaryDTO> completion = workflowEngineService.awaitCompletion(UUID.randomUUID().toString(), Duration.ofSeconds(10));
+
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> completion.get(5, TimeUnit.SECONDS));
+
+        Assertions.assertInstanceOf(WorkflowEngineRuntimeException.class, exception.getCause());
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    @Test
+    void testProcessEndedOnAnotherNode() {
+        ProcessEntity process = transactionExecutor.withReturn(() -> processRepository.save(new ProcessEntity("test-flow", new ContextEntity(), 3)));
+        CompletableFuture<ProcessSummaryDTO> completion = processCompletionRegistry.await(process.getId(), Duration.ofSeconds(10));
+
+        processCompletionRegistry.completeEnded();
+        Assertions.assertFalse(completion.isDone());
+
+        // Another node ends the process, this node gets no event
+        process.setStatus(ProcessStatus.WARNING);
+        transactionExecutor.withoutReturn(() -> processRepository.save(process));
+        processCompletionRegistry.completeEnded();
+
+        Assertions.assertTrue(completion.isDone());
+        Assertions.assertEquals(ProcessStatus.WARNING, completion.join().getStatus());
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    @Test
+    void testProcessesEndedOnAnotherNodeByChunks() {
+        List<ProcessEntity> processes = transactionExecutor.withReturn(() -> processRepository.saveAll(List.of(
+                new ProcessEntity("test-flow", new ContextEntity(), 3),
+                new ProcessEntity("test-flow", new ContextEntity(), 3),
+                new ProcessEntity("test-flow", new ContextEntity(), 3),
+                new ProcessEntity("test-flow", new ContextEntity(), 3),
+                new ProcessEntity("test-flow", new ContextEntity(), 3))));
+        List<CompletableFuture<ProcessSummaryDTO>> completions = processes.stream()
+                .map(process -> processCompletionRegistry.await(process.getId(), Duration.ofSeconds(10)))
+                .toList();
+
+        // Another node ends the processes, they are checked by chunks of 2 ids
+        processes.forEach(process -> process.setStatus(ProcessStatus.SUCCESS));
+        transactionExecutor.withoutReturn(() -> processRepository.saveAll(processes));
+        processCompletionRegistry.completeEnded();
+
+        completions.forEach(completion -> Assertions.assertEquals(ProcessStatus.SUCCESS, completion.join().getStatus()));
+        Assertions.assertEquals(0, processCompletionRegistry.size());
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
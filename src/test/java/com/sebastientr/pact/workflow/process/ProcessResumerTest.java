@@ -0,0 +1,145 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.NodeEntity;
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.domain.repository.NodeRepository;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.outbox.OutboxDispatcher;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Slf4j
+@SpringBootTest(properties = {
+        // Own database, so the dispatchers of the other cached test contexts do not claim the events
+        "spring.datasource.url=jdbc:h2:mem:resumer-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "workflow-engine.recovery.page-size=2",
+        "workflow-engine.outbox.poll-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ProcessResumerTest {
+    private static final String ALIVE_NODE = "alive-node";
+    private static final String DEAD_NODE = "dead-node";
+
+    @Autowired
+    private ProcessResumer processResumer;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Test
+    void testResumeStalledProcesses() {
+        LocalDateTime now = LocalDateTime.now();
+        nodeRepository.save(new NodeEntity(ALIVE_NODE, now, now));
+        nodeRepository.save(new NodeEntity(DEAD_NODE, now.minusHours(1), now.minusHours(1)));
+
+        // Never started, interrupted between two steps, interrupted during a step
+        ProcessEntity notStarted = newProcess(DEAD_NODE, ProcessStatus.INIT, Map.of());
+        ProcessEntity betweenSteps = newProcess(DEAD_NODE, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS));
+        ProcessEntity duringStep = newProcess(null, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.IN_PROGRESS));
+        ProcessEntity done = newProcess(DEAD_NODE, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.SUCCESS, 3, TaskStatus.SUCCESS));
+
+        // Still running somewhere, or already enqueued
+        ProcessEntity aliveOwner = newProcess(ALIVE_NODE, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS));
+        ProcessEntity enqueued = newProcess(DEAD_NODE, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS));
+        outboxEventRepository.save(new OutboxEventEntity(enqueued.getId(), "test-flow", 2, now.plusHours(1), null));
+
+        Assertions.assertEquals(3, processResumer.resumeStalledProcesses());
+        Assertions.assertEquals(3, outboxDispatcher.dispatch());
+        sleep(2);
+
+        assertProcess(notStarted, ProcessStatus.SUCCESS, 3);
+        assertProcess(betweenSteps, ProcessStatus.SUCCESS, 3);
+        assertProcess(duringStep, ProcessStatus.SUCCESS, 4);
+        assertProcess(done, ProcessStatus.SUCCESS, 3);
+        assertProcess(aliveOwner, ProcessStatus.IN_PROGRESS, 1);
+        assertProcess(enqueued, ProcessStatus.IN_PROGRESS, 1);
+
+        ProcessEntity retrieved = workflowEngineService.get(duringStep.getId().toString());
+        Assertions.assertEquals(1, retrieved.getTaskInstances().stream().filter(ti -> TaskStatus.RETRIED.equals(ti.getStatus())).count());
+    }
+
+    @Test
+    void testResumeProcessWithFailedTaskAllowedToFail() {
+        // The second task is allowed to fail
+        ProcessEntity betweenSteps = newProcess(null, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.ERROR));
+        ProcessEntity done = newProcess(null, ProcessStatus.IN_PROGRESS, Map.of(1, TaskStatus.SUCCESS, 2, TaskStatus.ERROR, 3, TaskStatus.SUCCESS));
+
+        Assertions.assertEquals(1, processResumer.resumeStalledProcesses());
+        assertProcess(done, ProcessStatus.WARNING, 3);
+
+        Assertions.assertEquals(1, outboxDispatcher.dispatch());
+        sleep(2);
+
+        assertProcess(betweenSteps, ProcessStatus.WARNING, 3);
+    }
+
+    private void assertProcess(ProcessEntity process, ProcessStatus status, int taskInstances) {
+        ProcessEntity retrieved = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(status, retrieved.getStatus());
+        Assertions.assertEquals(taskInstances, retrieved.getTaskInstances().size());
+    }
+
+    private ProcessEntity newProcess(String owner, ProcessStatus status, Map<Integer, TaskStatus> history) {
+        return transactionExecutor.withReturn(() -> {
+            ContextEntity context = new ContextEntity();
+            ProcessEntity process = new ProcessEntity("test-flow", context, 3);
+            process.setOwner(owner);
+            process.setStatus(status);
+            context.setProcess(process);
+
+            history.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> {
+                        var task = flowRegistry.get("test-flow").getStep(entry.getKey()).orElseThrow().getFlowTask().getTask();
+                        process.getTaskInstances().add(new TaskInstanceEntity(process, task, entry.getValue()));
+                    });
+
+            return processRepository.save(process);
+        });
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
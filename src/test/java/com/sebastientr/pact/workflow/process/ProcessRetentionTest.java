@@ -0,0 +1,127 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+@Slf4j
+@SpringBootTest(properties = {
+        "workflow-engine.retention.max-age-days=0",
+        "workflow-engine.retention.batch-size=2",
+        "workflow-engine.retention.interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class ProcessRetentionTest {
+    @TempDir
+    static Path archiveDirectory;
+
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private ProcessRetention processRetention;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void retentionProperties(DynamicPropertyRegistry registry) {
+        registry.add("workflow-engine.retention.archive-directory", () -> archiveDirectory.toString());
+    }
+
+    @Test
+    void testEndedProcessesAreDeletedByBatch() throws IOException {
+        List<UUID> ended = Stream.generate(() -> workflowEngineService.start("test-flow", new ContextEntity()).getId()).limit(3).toList();
+        ProcessEntity running = transactionExecutor.withReturn(() -> processRepository.save(new ProcessEntity("test-flow", new ContextEntity(), 3)));
+        running.setStatus(ProcessStatus.IN_PROGRESS);
+        transactionExecutor.withoutReturn(() -> processRepository.save(running));
+        sleep(1);
+
+        Assertions.assertEquals(2, processRetention.purgeBatch());
+        Assertions.assertEquals(1, processRetention.purgeBatch());
+        Assertions.assertEquals(0, processRetention.purgeBatch());
+
+        Assertions.assertEquals(List.of(running.getId()), processRepository.findAll().stream().map(ProcessEntity::getId).toList());
+        Assertions.assertEquals(0, count("workflow_task_instance"));
+        Assertions.assertEquals(1, count("workflow_context"));
+        Assertions.assertEquals(0, count("workflow_outbox_event"));
+
+        List<String> lines = readArchives();
+
+        Assertions.assertEquals(3, lines.size());
+        ended.forEach(id -> Assertions.assertTrue(lines.stream().anyMatch(line -> line.contains(id.toString()))));
+        Assertions.assertTrue(lines.stream().allMatch(line -> line.contains("\"taskInstances\":[{") && line.contains("\"status\":\"SUCCESS\"")));
+    }
+
+    @Test
+    void testRecentProcessesAreKept() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // Ended after the retention cutoff
+        jdbcTemplate.update("UPDATE workflow_process SET updated_at = DATEADD('DAY', 1, CURRENT_TIMESTAMP) WHERE id = ?", process.getId());
+
+        Assertions.assertEquals(0, processRetention.purgeBatch());
+        Assertions.assertTrue(processRepository.existsById(process.getId()));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private List<String> readArchives() throws IOException {
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            List<Path> archives = files.toList();
+
+            Assertions.assertTrue(archives.stream().allMatch(file -> file.getFileName().toString().endsWith(".jsonl.gz")));
+
+            return archives.stream().flatMap(file -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                    return reader.lines().toList().stream();
+                } catch (IOException e) {
+                    throw new WorkflowEngineRuntimeException(e.getMessage());
+                }
+            }).toList();
+        }
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
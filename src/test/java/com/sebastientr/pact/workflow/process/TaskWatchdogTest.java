@@ -0,0 +1,122 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.TaskInstanceEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+@Slf4j
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class TaskWatchdogTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private IDummyService dummyService;
+
+    @AfterEach
+    void resetTimeouts() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET timeout_ms = NULL");
+    }
+
+    @Test
+    void testTimedOutTaskIsInterrupted() {
+        setTimeout(1, 200);
+        doAnswer(invocation -> {
+            sleep(10);
+            return invocation.callRealMethod();
+        }).when(dummyService).first(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(2);
+
+        process = workflowEngineService.get(process.getId().toString());
+        TaskInstanceEntity taskInstance = process.getTaskInstances().get(0);
+
+        Assertions.assertEquals(ProcessStatus.ERROR, process.getStatus());
+        Assertions.assertEquals(1, process.getTaskInstances().size());
+        Assertions.assertEquals(TaskStatus.ERROR, taskInstance.getStatus());
+        Assertions.assertEquals("Task FirstTestTask timed out after 200 ms", taskInstance.getError());
+    }
+
+    @Test
+    void testTaskIgnoringInterruptionFailsOnceReturned() {
+        setTimeout(2, 200);
+        doAnswer(invocation -> {
+            // Busy task, not checking its interrupted flag
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+            return invocation.callRealMethod();
+        }).when(dummyService).second(anyString());
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(2);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        // The second task is allowed to fail, the flow continues
+        Assertions.assertEquals(ProcessStatus.WARNING, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        Assertions.assertEquals(2, process.getTaskSuccessCount());
+        Assertions.assertEquals(1, process.getTaskErrorCount());
+        Assertions.assertEquals("Task SecondTestTask timed out after 200 ms", process.getTaskInstances().get(1).getError());
+    }
+
+    @Test
+    void testTaskEndingInTime() {
+        setTimeout(1, 5000);
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+    }
+
+    private void setTimeout(int taskOrder, long timeoutMs) {
+        jdbcTemplate.update("UPDATE config_workflow_flow_task SET timeout_ms = ? WHERE task_order = ?", timeoutMs, taskOrder);
+        flowRegistry.reload();
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dto.enumeration.TaskStatus;
+import com.sebastientr.workflow.dummy.task.test.FirstTestTask;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class TransitionUnitOfWorkTest {
+    @Autowired
+    private WorkflowEngineProcessor workflowEngineProcessor;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private WorkflowEngineEventPublisher workflowEngineEventPublisher;
+
+    @SpyBean
+    private FirstTestTask firstTestTask;
+
+    @Test
+    void testStatementCountPerStep() {
+        // Only run the first step, the following ones would share the statistics
+        doNothing().when(workflowEngineEventPublisher).publishStartTaskEvent(any(), any(), any(), anyInt());
+
+        ProcessEntity process = newProcess();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workflowEngineProcessor.execute(flowRegistry.get("test-flow").getFirst().orElseThrow(), process);
+
+        // One insert of the task instance, one insert of the next step outbox event and one update of the process, context is unchanged
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(2, statistics.getEntityInsertCount());
+        Assertions.assertEquals(1, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertEquals(1, statistics.getFlushCount());
+
+        ProcessEntity processRetrieved = processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow();
+
+        Assertions.assertEquals(ProcessStatus.IN_PROGRESS, processRetrieved.getStatus());
+        Assertions.assertEquals(1, processRetrieved.getTaskSuccessCount());
+        Assertions.assertEquals(1, processRetrieved.getTaskInstances().size());
+        Assertions.assertEquals(TaskStatus.SUCCESS, processRetrieved.getTaskInstances().get(0).getStatus());
+    }
+
+    @Test
+    void testChangedVariablesAreWritten() {
+        doNothing().when(workflowEngineEventPublisher).publishStartTaskEvent(any(), any(), any(), anyInt());
+        doAnswer(invocation -> {
+            ContextEntity context = invocation.getArgument(0);
+            context.setVariable("pnr", "ABC123");
+            context.setVariable("segments", List.of(1, 2));
+            return null;
+        }).when(firstTestTask).execute(any());
+
+        ProcessEntity process = newProcess();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workflowEngineProcessor.execute(flowRegistry.get("test-flow").getFirst().orElseThrow(), process);
+
+        // The process and the context are updated, in the same flush
+        Assertions.assertEquals(2, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(1, statistics.getEntityStatistics(ContextEntity.class.getName()).getUpdateCount());
+        Assertions.assertEquals(1, statistics.getFlushCount());
+
+        ContextEntity context = processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow().getContext();
+
+        Assertions.assertEquals("ABC123", context.getVariable("pnr"));
+        Assertions.assertEquals(List.of(1, 2), context.getVariable("segments"));
+        Assertions.assertNull(context.getVariable("unknown"));
+    }
+
+    @Test
+    void testVariablesChangedInPlaceAreWritten() {
+        doNothing().when(workflowEngineEventPublisher).publishStartTaskEvent(any(), any(), any(), anyInt());
+        doAnswer(invocation -> {
+            // The map loaded with the context is mutated, it is not replaced
+            Map<String, Object> variables = invocation.<ContextEntity>getArgument(0).getVariables();
+            variables.put("pnr", "XYZ789");
+            variables.remove("flight");
+            return null;
+        }).when(firstTestTask).execute(any());
+
+        ProcessEntity process = newProcess(Map.of("pnr", "ABC123", "flight", "AF123"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workflowEngineProcessor.execute(flowRegistry.get("test-flow").getFirst().orElseThrow(), process);
+
+        // The change is detected against the snapshot taken when the context was re-attached
+        Assertions.assertEquals(1, statistics.getEntityStatistics(ContextEntity.class.getName()).getUpdateCount());
+
+        ContextEntity context = processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow().getContext();
+
+        Assertions.assertEquals(Map.of("pnr", "XYZ789"), context.getVariables());
+    }
+
+    @Test
+    void testUnchangedVariablesAreNotWritten() {
+        doNothing().when(workflowEngineEventPublisher).publishStartTaskEvent(any(), any(), any(), anyInt());
+        doAnswer(invocation -> {
+            // Read only, or set again to the same value
+            ContextEntity context = invocation.getArgument(0);
+            context.setVariable("pnr", context.getVariable("pnr"));
+            return null;
+        }).when(firstTestTask).execute(any());
+
+        ProcessEntity process = newProcess(Map.of("pnr", "ABC123", "segments", List.of(1, 2)));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workflowEngineProcessor.execute(flowRegistry.get("test-flow").getFirst().orElseThrow(), process);
+
+        // Only the process is updated
+        Assertions.assertEquals(1, statistics.getEntityUpdateCount());
+        Assertions.assertEquals(0, statistics.getEntityStatistics(ContextEntity.class.getName()).getUpdateCount());
+
+        ContextEntity context = processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow().getContext();
+
+        Assertions.assertEquals(Map.of("pnr", "ABC123", "segments", List.of(1, 2)), context.getVariables());
+    }
+
+    private ProcessEntity newProcess() {
+        return newProcess(null);
+    }
+
+    private ProcessEntity newProcess(Map<String, Object> variables) {
+        ContextEntity context = new ContextEntity();
+        context.setVariables(variables == null ? null : new HashMap<>(variables));
+
+        ProcessEntity process = transactionExecutor.withReturn(() -> {
+            ProcessEntity newProcess = processRepository.save(new ProcessEntity("test-flow", context, 3));
+            context.setProcess(newProcess);
+            return newProcess;
+        });
+
+        return processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow();
+    }
+}
@@ -0,0 +1,70 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doNothing;
+
+@SpringBootTest(properties = {
+        "workflow-engine.persistence.single-flush=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class TransitionUnitOfWorkWriteThroughTest {
+    @Autowired
+    private WorkflowEngineProcessor workflowEngineProcessor;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private WorkflowEngineEventPublisher workflowEngineEventPublisher;
+
+    @Test
+    void testUnchangedContextIsNotWritten() {
+        doNothing().when(workflowEngineEventPublisher).publishStartTaskEvent(any(), any(), any(), anyInt());
+
+        ContextEntity context = new ContextEntity();
+        ProcessEntity process = transactionExecutor.withReturn(() -> {
+            ProcessEntity newProcess = processRepository.save(new ProcessEntity("test-flow", context, 3));
+            context.setProcess(newProcess);
+            return newProcess;
+        });
+        process = processRepository.findByIdOrderByTaskInstancesCreatedAt(process.getId()).orElseThrow();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        workflowEngineProcessor.execute(flowRegistry.get("test-flow").getFirst().orElseThrow(), process);
+
+        Assertions.assertEquals(0, statistics.getEntityStatistics(ContextEntity.class.getName()).getUpdateCount());
+        Assertions.assertEquals(0, statistics.getEntityStatistics(ContextEntity.class.getName()).getLoadCount());
+        Assertions.assertEquals(1, statistics.getEntityStatistics(ProcessEntity.class.getName()).getUpdateCount());
+        Assertions.assertEquals(ProcessStatus.IN_PROGRESS, processRepository.findById(process.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,102 @@
+package com.sebastientr.workflow.process;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@Slf4j
+@SpringBootTest(properties = {
+        "workflow-engine.chaining.enabled=true",
+        "workflow-engine.chaining.max-steps=2",
+        "workflow-engine.chaining.time-slice-ms=10000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class WorkflowEngineProcessorTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @SpyBean
+    private WorkflowEngineEventPublisher workflowEngineEventPublisher;
+
+    @SpyBean
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void resetLimits() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_task SET max_concurrency = NULL WHERE name = 'FirstTestTask'");
+    }
+
+    @Test
+    void testChainedSteps() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // The first step is dispatched by start(), the second one runs inline, the chain then yields for the third one
+        verify(workflowEngineEventPublisher, times(2)).publishStartTaskEvent(any(FlowTaskEntity.class), any(UUID.class), any(UUID.class), anyInt());
+        verify(workflowEngineEventPublisher, times(1)).publishInlineStartTaskEvent(any(FlowTaskEntity.class), any(ProcessEntity.class));
+        verify(workflowEngineEventPublisher, times(1)).publishEndProcessEvent(any(ProcessEntity.class));
+        verify(processRepository, times(2)).findByIdOrderByTaskInstancesCreatedAt(eq(process.getId()));
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+    }
+
+    @Test
+    void testLimitedStepDoesNotChain() {
+        jdbcTemplate.update("UPDATE config_workflow_task SET max_concurrency = 1 WHERE name = 'FirstTestTask'");
+        flowRegistry.reload();
+
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        // The limited first step yields its slot, the second step is dispatched and chains the third one
+        verify(workflowEngineEventPublisher, times(2)).publishStartTaskEvent(any(FlowTaskEntity.class), any(UUID.class), any(UUID.class), anyInt());
+        verify(workflowEngineEventPublisher, times(1)).publishInlineStartTaskEvent(argThat(flowTask -> flowTask.getTaskOrder() == 3), any(ProcessEntity.class));
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, workflowEngineService.get(process.getId().toString()).getStatus());
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.core.FlowEntity;
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.domain.repository.FlowRepository;
+import com.sebastientr.workflow.domain.repository.FlowTaskRepository;
+import com.sebastientr.workflow.dummy.task.test.FirstTestTask;
+import com.sebastientr.workflow.dummy.task.test.SecondTestTask;
+import com.sebastientr.workflow.dummy.task.test.ThirdTestTask;
+import com.sebastientr.workflow.exception.WorkflowEngineConfigurationException;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class FlowRegistryTest {
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @SpyBean
+    private FlowRepository flowRepository;
+
+    @Autowired
+    private FlowTaskRepository flowTaskRepository;
+
+    @Test
+    void testCompiledSteps() throws WorkflowEngineConfigurationException {
+        CompiledFlow flow = flowRegistry.get("test-flow");
+
+        Assertions.assertEquals(3, flow.getSize());
+
+        CompiledFlowTask first = flow.getFirst().orElseThrow();
+        CompiledFlowTask second = first.getNext().orElseThrow();
+        CompiledFlowTask third = second.getNext().orElseThrow();
+
+        Assertions.assertEquals(1, first.getTaskOrder());
+        Assertions.assertEquals(2, second.getTaskOrder());
+        Assertions.assertEquals(3, third.getTaskOrder());
+        Assertions.assertTrue(third.getNext().isEmpty());
+
+        Assertions.assertInstanceOf(FirstTestTask.class, first.getDelegate());
+        Assertions.assertInstanceOf(SecondTestTask.class, second.getDelegate());
+        Assertions.assertInstanceOf(ThirdTestTask.class, third.getDelegate());
+
+        Assertions.assertSame(second, flow.getStep(2).orElseThrow());
+        Assertions.assertSame(third, flow.getStep("ThirdTestTask").orElseThrow());
+    }
+
+    @Test
+    void testDisabledStepIsSkipped() {
+        FlowEntity flowEntity = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
+        flowEntity.getFlowTask().get(1).setEnabled(false);
+        flowTaskRepository.save(flowEntity.getFlowTask().get(1));
+
+        flowRegistry.reload();
+        CompiledFlow flow = flowRegistry.get("test-flow");
+
+        Assertions.assertEquals(2, flow.getSize());
+        Assertions.assertEquals(3, flow.getFirst().orElseThrow().getNext().orElseThrow().getTaskOrder());
+    }
+
+    @Test
+    void testParallelGroup() {
+        FlowEntity flowEntity = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
+        flowEntity.getFlowTask().get(0).setParallelGroup(1);
+        flowEntity.getFlowTask().get(1).setParallelGroup(1);
+        flowTaskRepository.saveAll(flowEntity.getFlowTask());
+
+        flowRegistry.reload();
+        CompiledFlow flow = flowRegistry.get("test-flow");
+
+        CompiledFlowTask first = flow.getFirst().orElseThrow();
+        CompiledFlowTask second = flow.getStep(2).orElseThrow();
+        CompiledFlowTask third = flow.getStep(3).orElseThrow();
+
+        Assertions.assertTrue(first.isBranch());
+        Assertions.assertEquals(List.of(first, second), first.getBranches());
+        Assertions.assertEquals(List.of(first, second), second.getBranches());
+        Assertions.assertSame(third, first.getNext().orElseThrow());
+        Assertions.assertSame(third, second.getNext().orElseThrow());
+        Assertions.assertFalse(third.isBranch());
+        Assertions.assertEquals(List.of(third), third.getBranches());
+    }
+
+    @Test
+    void testTaskUsedTwiceResolvesToItsFirstStep() {
+        TaskEntity task = new TaskEntity(null, "FirstTestTask", null, null, null, null, null, null);
+        FlowEntity flowEntity = new FlowEntity(null, "reused-task-flow", new ArrayList<>());
+        for (int order = 1; order <= 3; order++) {
+            FlowTaskEntity flowTask = new FlowTaskEntity();
+            flowTask.setFlow(flowEntity);
+            flowTask.setTask(task);
+            flowTask.setTaskOrder(order);
+            flowEntity.getFlowTask().add(flowTask);
+        }
+
+        CompiledFlow flow = CompiledFlow.compile(flowEntity, name -> null);
+
+        Assertions.assertEquals(1, flow.getStep("FirstTestTask").orElseThrow().getTaskOrder());
+    }
+
+    @Test
+    void testNoDatabaseLookupOnceCompiled() {
+        flowRegistry.reload();
+        Mockito.clearInvocations(flowRepository);
+
+        CompiledFlow flow = flowRegistry.get("test-flow");
+
+        Assertions.assertSame(flow, flowRegistry.get("test-flow"));
+        verify(flowRepository, never()).findByNameOrderByTaskOrder(anyString());
+        verify(flowRepository, never()).findAll();
+    }
+
+    @Test
+    void testUnknownFlow() {
+        WorkflowEngineRuntimeException exception = Assertions.assertThrows(WorkflowEngineRuntimeException.class, () -> flowRegistry.get("unknown-flow"));
+
+        Assertions.assertEquals("Could not find flow unknown-flow", exception.getMessage());
+    }
+}
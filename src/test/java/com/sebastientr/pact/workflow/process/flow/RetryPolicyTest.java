@@ -0,0 +1,63 @@
+package com.sebastientr.workflow.process.flow;
+
+import com.sebastientr.workflow.domain.entity.core.FlowTaskEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+
+class RetryPolicyTest {
+    @Test
+    void testNoRetryByDefault() {
+        Assertions.assertSame(RetryPolicy.NONE, RetryPolicy.of(new FlowTaskEntity()));
+        Assertions.assertFalse(RetryPolicy.NONE.isRetryable(1, new IllegalStateException()));
+    }
+
+    @Test
+    void testExponentialBackoff() {
+        FlowTaskEntity flowTask = new FlowTaskEntity();
+        flowTask.setRetryMaxAttempts(5);
+        flowTask.setRetryDelayMs(100L);
+        flowTask.setRetryMultiplier(3.0);
+        flowTask.setRetryMaxDelayMs(1000L);
+
+        RetryPolicy policy = RetryPolicy.of(flowTask);
+
+        Assertions.assertEquals(100, policy.getDelayMs(1));
+        Assertions.assertEquals(300, policy.getDelayMs(2));
+        Assertions.assertEquals(900, policy.getDelayMs(3));
+        Assertions.assertEquals(1000, policy.getDelayMs(4));
+        Assertions.assertTrue(policy.isRetryable(4, new IllegalStateException()));
+        Assertions.assertFalse(policy.isRetryable(5, new IllegalStateException()));
+    }
+
+    @Test
+    void testJitter() {
+        FlowTaskEntity flowTask = new FlowTaskEntity();
+        flowTask.setRetryMaxAttempts(2);
+        flowTask.setRetryDelayMs(1000L);
+        flowTask.setRetryJitter(0.5);
+
+        RetryPolicy policy = RetryPolicy.of(flowTask);
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelayMs(1);
+            Assertions.assertTrue(delay >= 500 && delay <= 1500, "Delay %d out of the jitter range".formatted(delay));
+        }
+    }
+
+    @Test
+    void testRetryOn() {
+        FlowTaskEntity flowTask = new FlowTaskEntity();
+        flowTask.setRetryMaxAttempts(2);
+        flowTask.setRetryOn("java.io.IOException, com.example.UnknownException");
+
+        RetryPolicy policy = RetryPolicy.of(flowTask);
+
+        Assertions.assertTrue(policy.isRetryable(1, new SocketTimeoutException()));
+        Assertions.assertTrue(policy.isRetryable(1, new UncheckedIOException(new IOException())));
+        Assertions.assertFalse(policy.isRetryable(1, new IllegalStateException()));
+    }
+}
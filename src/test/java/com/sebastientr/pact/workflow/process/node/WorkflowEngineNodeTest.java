@@ -0,0 +1,120 @@
+package com.sebastientr.workflow.process.node;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.NodeEntity;
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.NodeRepository;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.process.TransactionExecutor;
+import com.sebastientr.workflow.process.WorkflowEngineProcessor;
+import com.sebastientr.workflow.queuing.outbox.OutboxDispatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@SpringBootTest(properties = {
+        // Own database, so the dispatchers of the other cached test contexts do not claim the events
+        "spring.datasource.url=jdbc:h2:mem:node-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "workflow-engine.outbox.poll-interval-ms=3600000",
+        "workflow-engine.node.heartbeat-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class WorkflowEngineNodeTest {
+    private static final String ALIVE_NODE = "alive-node";
+    private static final String DEAD_NODE = "dead-node";
+
+    @Autowired
+    private WorkflowEngineNode workflowEngineNode;
+
+    @Autowired
+    private WorkflowEngineProcessor workflowEngineProcessor;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private NodeRepository nodeRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Test
+    void testHeartbeat() {
+        NodeEntity node = nodeRepository.findById(workflowEngineNode.getId()).orElseThrow();
+
+        workflowEngineNode.heartbeat();
+
+        Assertions.assertTrue(nodeRepository.findById(workflowEngineNode.getId()).orElseThrow().getHeartbeatAt().isAfter(node.getHeartbeatAt()));
+    }
+
+    @Test
+    void testEventsOfDeadNodeAreTakenOver() {
+        // Truncated, the database may round the nanoseconds up
+        LocalDateTime leasedUntil = LocalDateTime.now().plusMinutes(5).truncatedTo(ChronoUnit.MILLIS);
+        registerNodes();
+
+        transactionExecutor.withoutReturn(() -> {
+            ProcessEntity alive = newProcess(ALIVE_NODE, ProcessStatus.INIT);
+            ProcessEntity dead = newProcess(DEAD_NODE, ProcessStatus.INIT);
+
+            outboxEventRepository.save(newEvent(alive, ALIVE_NODE, leasedUntil));
+            outboxEventRepository.save(newEvent(dead, DEAD_NODE, leasedUntil));
+        });
+
+        Assertions.assertEquals(1, outboxDispatcher.dispatch());
+
+        Assertions.assertTrue(outboxEventRepository.findAll().stream()
+                .filter(event -> event.getLockedUntil().isAfter(leasedUntil))
+                .allMatch(event -> workflowEngineNode.getId().equals(event.getOwner())));
+    }
+
+    @Test
+    void testCleanOnlyProcessesOfDeadNodes() {
+        registerNodes();
+
+        ProcessEntity alive = transactionExecutor.withReturn(() -> newProcess(ALIVE_NODE, ProcessStatus.IN_PROGRESS));
+        ProcessEntity dead = transactionExecutor.withReturn(() -> newProcess(DEAD_NODE, ProcessStatus.IN_PROGRESS));
+
+        workflowEngineProcessor.endExistingTasksOnStartup();
+
+        Assertions.assertEquals(ProcessStatus.IN_PROGRESS, processRepository.findById(alive.getId()).orElseThrow().getStatus());
+        Assertions.assertEquals(ProcessStatus.ERROR, processRepository.findById(dead.getId()).orElseThrow().getStatus());
+    }
+
+    private void registerNodes() {
+        LocalDateTime now = LocalDateTime.now();
+        nodeRepository.save(new NodeEntity(ALIVE_NODE, now, now));
+        nodeRepository.save(new NodeEntity(DEAD_NODE, now.minusHours(1), now.minusHours(1)));
+    }
+
+    private ProcessEntity newProcess(String owner, ProcessStatus status) {
+        ContextEntity context = new ContextEntity();
+        ProcessEntity process = new ProcessEntity("test-flow", context, 3);
+        process.setOwner(owner);
+        process.setStatus(status);
+        context.setProcess(process);
+
+        return processRepository.save(process);
+    }
+
+    private static OutboxEventEntity newEvent(ProcessEntity process, String owner, LocalDateTime lockedUntil) {
+        OutboxEventEntity event = new OutboxEventEntity(process.getId(), process.getFlowName(), 1, LocalDateTime.now(), lockedUntil);
+        event.setOwner(owner);
+
+        return event;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sebastientr.workflow.queuing.executor;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class PriorityTaskQueueTest {
+    @Test
+    void testHigherPriorityFirst() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(10, 60_000);
+        List<String> ran = new ArrayList<>();
+
+        queue.offer(queue.prioritize(() -> ran.add("low"), 0));
+        queue.offer(queue.prioritize(() -> ran.add("high"), 2));
+        queue.offer(queue.prioritize(() -> ran.add("medium"), 1));
+        queue.offer(queue.prioritize(() -> ran.add("low again"), 0));
+
+        while (!queue.isEmpty()) {
+            queue.poll().run();
+        }
+
+        // Same priority, same order as queued
+        Assertions.assertEquals(List.of("high", "medium", "low", "low again"), ran);
+    }
+
+    @Test
+    void testWaitingStepsAge() throws InterruptedException {
+        PriorityTaskQueue queue = new PriorityTaskQueue(10, 20);
+        List<String> ran = new ArrayList<>();
+
+        queue.offer(queue.prioritize(() -> ran.add("old"), 0));
+        Thread.sleep(100);
+        queue.offer(queue.prioritize(() -> ran.add("urgent"), 2));
+        queue.offer(queue.prioritize(() -> ran.add("very urgent"), 10));
+
+        while (!queue.isEmpty()) {
+            queue.poll().run();
+        }
+
+        // The old step waited more than two aging times
+        Assertions.assertEquals(List.of("very urgent", "old", "urgent"), ran);
+    }
+
+    @Test
+    void testBoundedCapacity() {
+        PriorityTaskQueue queue = new PriorityTaskQueue(2, 1000);
+
+        Assertions.assertTrue(queue.offer(queue.prioritize(() -> { }, 0)));
+        Assertions.assertTrue(queue.offer(queue.prioritize(() -> { }, 0)));
+        Assertions.assertEquals(0, queue.remainingCapacity());
+
+        // The pool rejects the step
+        Assertions.assertFalse(queue.offer(queue.prioritize(() -> { }, 5)));
+        Assertions.assertEquals(2, queue.size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.sebastientr.workflow.queuing.executor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@SpringBootTest(properties = {
+        "workflow-engine.executor.core-size=2",
+        "workflow-engine.executor.max-size=2",
+        "workflow-engine.executor.queue-capacity=1",
+        "workflow-engine.executor.thread-name-prefix=test-engine-"
+})
+class WorkflowEngineExecutorTest {
+    @Autowired
+    private WorkflowEngineExecutor workflowEngineExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TestConfiguration
+    static class MeterRegistryConfiguration {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void testRunsOnEngineThreads() throws Exception {
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+        workflowEngineExecutor.execute(() -> threadName.complete(Thread.currentThread().getName()));
+
+        Assertions.assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("test-engine-"));
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try {
+            Assertions.assertTrue(workflowEngineExecutor.execute(blocking));
+            Assertions.assertTrue(workflowEngineExecutor.execute(blocking));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(workflowEngineExecutor.execute(() -> { }));
+
+            Assertions.assertEquals(2, workflowEngineExecutor.getActiveCount());
+            Assertions.assertEquals(1, workflowEngineExecutor.getQueueSize());
+            Assertions.assertEquals(0, workflowEngineExecutor.getRemainingCapacity());
+            Assertions.assertEquals(1.0, meterRegistry.get("workflow.engine.executor.queue.size").gauge().value());
+            Assertions.assertEquals(2.0, meterRegistry.get("workflow.engine.executor.active").gauge().value());
+
+            // The step is never run by the calling thread
+            AtomicBoolean ran = new AtomicBoolean();
+            Assertions.assertFalse(workflowEngineExecutor.execute(() -> ran.set(true)));
+            Assertions.assertFalse(ran.get());
+            Assertions.assertEquals(1.0, meterRegistry.get("workflow.engine.executor.rejected").counter().count());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.sebastientr.workflow.queuing.limiter;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.entity.core.TaskEntity;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.dummy.service.IDummyService;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.executor.WorkflowEngineExecutor;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+@Slf4j
+@SpringBootTest(properties = {
+        "workflow-engine.outbox.poll-interval-ms=200",
+        "workflow-engine.outbox.batch-size=5",
+        "workflow-engine.outbox.lease-ms=3000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class TaskLimitersTest {
+    @Autowired
+    private TaskLimiters taskLimiters;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkflowEngineExecutor workflowEngineExecutor;
+
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private IDummyService dummyService;
+
+    @TestConfiguration
+    static class MeterRegistryConfiguration {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @AfterEach
+    void resetLimits() {
+        // The database outlives this context
+        jdbcTemplate.update("UPDATE config_workflow_task SET max_concurrency = NULL, rate_per_second = NULL, rate_burst = NULL");
+    }
+
+    @Test
+    void testUnlimitedTaskHasNoLimiter() {
+        Assertions.assertNull(taskLimiters.get(task("Unlimited", null, null, null)));
+        Assertions.assertNull(taskLimiters.get(task("Unlimited", 0, 0.0, null)));
+    }
+
+    @Test
+    void testConcurrencyLimit() throws InterruptedException {
+        TaskEntity task = task("Bulkhead", 2, null, null);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+
+        for (int i = 0; i < 5; i++) {
+            taskLimiters.execute(task, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        sleep(1);
+
+        // The steps over the limit wait without holding a worker
+        TaskLimiter limiter = taskLimiters.get(task);
+        Assertions.assertEquals(2, limiter.getRunning());
+        Assertions.assertEquals(3, limiter.getQueued());
+        Assertions.assertEquals(3.0, meterRegistry.get("workflow.engine.task.limiter.queued").tag("task", "Bulkhead").gauge().value());
+
+        release.countDown();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, maxRunning.get());
+        Assertions.assertEquals(5, meterRegistry.get("workflow.engine.task.limiter.wait").tag("task", "Bulkhead").timer().count());
+    }
+
+    @Test
+    void testRateLimit() throws InterruptedException {
+        TaskEntity task = task("Bucket", null, 10.0, 2);
+        List<Long> startedAt = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(6);
+
+        long submittedAt = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            taskLimiters.execute(task, () -> {
+                startedAt.add(System.nanoTime() - submittedAt);
+                done.countDown();
+            });
+        }
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // The burst starts right away, then one step every 100 ms
+        List<Long> sorted = new ArrayList<>(startedAt);
+        sorted.sort(Long::compare);
+        Assertions.assertTrue(sorted.get(1) < TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertTrue(sorted.get(5) >= TimeUnit.MILLISECONDS.toNanos(350), "Last step started after %d ns".formatted(sorted.get(5)));
+        Assertions.assertTrue(meterRegistry.get("workflow.engine.task.limiter.wait").tag("task", "Bucket").timer()
+                .max(TimeUnit.MILLISECONDS) >= 350);
+    }
+
+    @Test
+    void testRejectedStepFreesItsSlot() throws InterruptedException {
+        TaskEntity task = task("Rejected", 1, null, null);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        while (workflowEngineExecutor.execute(blocking)) {
+            // Fill the queue
+        }
+
+        CountDownLatch rejected = new CountDownLatch(1);
+        try {
+            taskLimiters.execute(task, 0, () -> Assertions.fail("The step was rejected"), rejected::countDown);
+
+            // The step is handed back to its caller, it is not run by the submitting thread
+            Assertions.assertTrue(rejected.await(1, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, taskLimiters.get(task).getRunning());
+        } finally {
+            release.countDown();
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        sleep(1);
+        taskLimiters.execute(task, done::countDown);
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testChangedLimitsReplaceTheLimiter() {
+        TaskLimiter limiter = taskLimiters.get(task("Changing", 2, null, null));
+
+        Assertions.assertSame(limiter, taskLimiters.get(task("Changing", 2, null, null)));
+        Assertions.assertNotSame(limiter, taskLimiters.get(task("Changing", 3, null, null)));
+    }
+
+    @Test
+    void testLimitedTaskInFlows() {
+        jdbcTemplate.update("UPDATE config_workflow_task SET max_concurrency = 1 WHERE name = 'FirstTestTask'");
+        flowRegistry.reload();
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(dummyService).first(anyString());
+
+        List<ProcessEntity> processes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            processes.add(workflowEngineService.start("test-flow", new ContextEntity()));
+        }
+        sleep(2);
+
+        Assertions.assertEquals(1, maxRunning.get());
+        processes.forEach(process -> Assertions.assertEquals(ProcessStatus.SUCCESS,
+                workflowEngineService.get(process.getId().toString()).getStatus()));
+    }
+
+    @Test
+    void testHeldStepsAreBoundedByTheDispatcherPoll() throws InterruptedException {
+        jdbcTemplate.update("UPDATE config_workflow_task SET rate_per_second = 5 WHERE name = 'FirstTestTask'");
+        flowRegistry.reload();
+        TaskLimiter limiter = taskLimiters.get(flowRegistry.get("test-flow").getStep(1).orElseThrow().getFlowTask().getTask());
+
+        // Many outbox batches, and more steps than the rate lets through within a lease
+        List<ContextEntity> contexts = IntStream.range(0, 30).mapToObj(i -> new ContextEntity()).toList();
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", contexts);
+
+        int maxQueued = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (waited("FirstTestTask") < processes.size() && System.nanoTime() < deadline) {
+            maxQueued = Math.max(maxQueued, limiter.getQueued());
+            Thread.sleep(10);
+        }
+        sleep(1);
+
+        // The other steps wait in the outbox, none is held past the lease of its event and let through twice
+        Assertions.assertEquals(6, limiter.getMaxQueued());
+        Assertions.assertTrue(maxQueued <= limiter.getMaxQueued(), "Held %d steps".formatted(maxQueued));
+        Assertions.assertEquals(processes.size(), waited("FirstTestTask"));
+        processes.forEach(process -> Assertions.assertEquals(ProcessStatus.SUCCESS,
+                workflowEngineService.get(process.getId().toString()).getStatus()));
+    }
+
+    private long waited(String taskName) {
+        return meterRegistry.get("workflow.engine.task.limiter.wait").tag("task", taskName).timer().count();
+    }
+
+    private static TaskEntity task(String name, Integer maxConcurrency, Double ratePerSecond, Integer rateBurst) {
+        return new TaskEntity(null, name, null, maxConcurrency, ratePerSecond, rateBurst, null, null);
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.sebastientr.workflow.queuing.outbox;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.OutboxEventEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import com.sebastientr.workflow.domain.repository.OutboxEventRepository;
+import com.sebastientr.workflow.domain.repository.ProcessRepository;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.exception.WorkflowEngineRuntimeException;
+import com.sebastientr.workflow.process.TransactionExecutor;
+import com.sebastientr.workflow.process.flow.FlowRegistry;
+import com.sebastientr.workflow.queuing.producer.WorkflowEngineEventPublisher;
+import com.sebastientr.workflow.service.impl.WorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@SpringBootTest(properties = {
+        // Own database, so the dispatchers of the other cached test contexts do not claim the events
+        "spring.datasource.url=jdbc:h2:mem:outbox-test;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "workflow-engine.outbox.poll-interval-ms=3600000"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+class OutboxDispatcherTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ProcessRepository processRepository;
+
+    @Autowired
+    private TransactionExecutor transactionExecutor;
+
+    @Autowired
+    private FlowRegistry flowRegistry;
+
+    @Autowired
+    private WorkflowEngineEventPublisher workflowEngineEventPublisher;
+
+    @Test
+    void testEventsAreConsumed() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(0, outboxEventRepository.count());
+        Assertions.assertEquals(0, outboxDispatcher.dispatch());
+    }
+
+    @Test
+    void testInterruptedProcessIsDispatched() {
+        // The process was created, but the node stopped before its first step event was published
+        ProcessEntity process = transactionExecutor.withReturn(() -> {
+            ContextEntity context = new ContextEntity();
+            ProcessEntity newProcess = processRepository.save(new ProcessEntity("test-flow", context, 3));
+            context.setProcess(newProcess);
+            outboxEventRepository.save(new OutboxEventEntity(newProcess.getId(), "test-flow", 1, LocalDateTime.now(), null));
+            return newProcess;
+        });
+
+        Assertions.assertEquals(1, outboxDispatcher.dispatch());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        Assertions.assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testLeasedAndFutureEventsAreNotDispatched() {
+        LocalDateTime now = LocalDateTime.now();
+
+        transactionExecutor.withoutReturn(() -> {
+            ContextEntity context = new ContextEntity();
+            ProcessEntity newProcess = processRepository.save(new ProcessEntity("test-flow", context, 3));
+            context.setProcess(newProcess);
+            outboxEventRepository.save(new OutboxEventEntity(newProcess.getId(), "test-flow", 1, now, now.plusMinutes(1)));
+            outboxEventRepository.save(new OutboxEventEntity(newProcess.getId(), "test-flow", 1, now.plusMinutes(1), null));
+        });
+
+        Assertions.assertEquals(0, outboxDispatcher.dispatch());
+        Assertions.assertEquals(2, outboxEventRepository.count());
+    }
+
+    @Test
+    void testDuplicateDeliveryIsIgnored() {
+        ProcessEntity process = transactionExecutor.withReturn(() -> {
+            ContextEntity context = new ContextEntity();
+            ProcessEntity newProcess = processRepository.save(new ProcessEntity("test-flow", context, 3));
+            context.setProcess(newProcess);
+            outboxEventRepository.save(new OutboxEventEntity(newProcess.getId(), "test-flow", 1, LocalDateTime.now(), null));
+            return newProcess;
+        });
+
+        OutboxEventEntity event = outboxEventRepository.findAll().get(0);
+        var flowTask = flowRegistry.get("test-flow").getStep(1).orElseThrow().getFlowTask();
+
+        workflowEngineEventPublisher.publishStartTaskEvent(flowTask, process.getId(), event.getId(), event.getPriority());
+        sleep(1);
+        workflowEngineEventPublisher.publishStartTaskEvent(flowTask, process.getId(), event.getId(), event.getPriority());
+        sleep(1);
+
+        process = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(3, process.getTaskInstances().size());
+        Assertions.assertEquals(3, process.getTaskSuccessCount());
+    }
+
+    protected void sleep(long sec) {
+        log.debug("Sleeping {} seconds", sec);
+        try {
+            Thread.sleep(sec * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkflowEngineRuntimeException("Interruption during sleep");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.sebastientr.workflow.queuing.outbox;
+
+import com.sebastientr.workflow.MainApplication;
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
+import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
+import com.sebastientr.workflow.service.IWorkflowEngineService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the START_TASK events written to the outbox against the in-memory events. Run with -Dbenchmark=true,
+ * the number of processes is set by -Dbenchmark.rows. Each process of test-flow publishes three events.
+ * The tests H2 database is used unless overridden, e.g. for PostgreSQL :
+ * -Dspring.datasource.url=jdbc:postgresql://localhost:5432/workflow -Dspring.datasource.username=... -Dspring.datasource.password=...
+ * -Dspring.datasource.driver-class-name=org.postgresql.Driver -Dspring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OutboxThroughputBenchmarkTest {
+    private static final int EVENTS_PER_PROCESS = 3;
+    private static final int CHUNK_SIZE = 500;
+    // Below the executor queue capacity : without the outbox, a rejected step is lost
+    private static final int MAX_IN_FLIGHT = 5_000;
+
+    @Test
+    void testOutboxAgainstInMemoryEvents() throws InterruptedException {
+        int rows = Integer.getInteger("benchmark.rows", 50_000);
+
+        long inMemory = eventsPerSecond(rows, "--workflow-engine.outbox.enabled=false");
+        long outbox = eventsPerSecond(rows, "--workflow-engine.outbox.enabled=true");
+        long dispatched = eventsPerSecond(rows, "--workflow-engine.outbox.enabled=true", "--workflow-engine.outbox.publish-after-commit=false");
+
+        log.warn("In-memory events : {} events/s", inMemory);
+        log.warn("Outbox, published after commit : {} events/s", outbox);
+        log.warn("Outbox, published by the dispatchers : {} events/s", dispatched);
+    }
+
+    /**
+     * Run the processes on an engine of their own, once to warm it up, then measured
+     */
+    private static long eventsPerSecond(int rows, String... outboxArgs) throws InterruptedException {
+        String[] args = Stream.concat(Stream.of(
+                "--spring.jpa.show-sql=false",
+                "--logging.level.com.sebastientr.workflow=WARN",
+                "--workflow-engine.clean-process-on-startup=false",
+                "--workflow-engine.continue-process-on-startup=false"
+        ), Stream.of(outboxArgs)).toArray(String[]::new);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MainApplication.class).run(args)) {
+            IWorkflowEngineService workflowEngineService = context.getBean(IWorkflowEngineService.class);
+            run(workflowEngineService, Math.min(rows, 10 * CHUNK_SIZE));
+
+            long start = System.nanoTime();
+            run(workflowEngineService, rows);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            return rows * EVENTS_PER_PROCESS * 1000L / Math.max(elapsedMs, 1);
+        }
+    }
+
+    /**
+     * Start the processes by chunks, with at most {@link #MAX_IN_FLIGHT} of them running, and wait for their end
+     */
+    private static void run(IWorkflowEngineService workflowEngineService, int rows) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        List<CompletableFuture<ProcessSummaryDTO>> ended = new ArrayList<>(rows);
+
+        for (int offset = 0; offset < rows; offset += CHUNK_SIZE) {
+            int size = Math.min(CHUNK_SIZE, rows - offset);
+            inFlight.acquire(size);
+
+            List<ContextEntity> contexts = IntStream.range(0, size).mapToObj(i -> new ContextEntity()).toList();
+            workflowEngineService.startAll("test-flow", contexts).forEach(process -> ended.add(
+                    workflowEngineService.awaitCompletion(process.getId().toString(), Duration.ofMinutes(5))
+                            .whenComplete((summary, failure) -> inFlight.release())));
+        }
+
+        CompletableFuture.allOf(ended.toArray(CompletableFuture[]::new)).join();
+        Assertions.assertTrue(ended.stream().allMatch(future -> future.join().getStatus() == ProcessStatus.SUCCESS));
+    }
+}
@@ -0,0 +1,63 @@
+package com.sebastientr.workflow.service.impl;
+
+import com.sebastientr.workflow.domain.entity.ContextEntity;
+import com.sebastientr.workflow.domain.entity.ProcessEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of the looped start() against startAll(). Run with -Dbenchmark=true, the number of processes is set by -Dbenchmark.rows
+ * The steps are left to a dispatcher that never polls, so only the start of the processes is measured.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:start-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;DATABASE_TO_UPPER=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.sebastientr.workflow=WARN",
+        "workflow-engine.clean-process-on-startup=false",
+        "workflow-engine.continue-process-on-startup=false",
+        "workflow-engine.outbox.publish-after-commit=false",
+        "workflow-engine.outbox.poll-interval-ms=3600000"
+})
+class StartAllBenchmarkTest {
+    @Autowired
+    private WorkflowEngineService workflowEngineService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testStartAllAgainstStart() {
+        int rows = Integer.getInteger("benchmark.rows", 100_000);
+
+        long start = System.nanoTime();
+        for (ContextEntity context : newContexts(rows)) {
+            workflowEngineService.start("test-flow", context);
+        }
+        long loopedMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", newContexts(rows));
+        long bulkMs = (System.nanoTime() - start) / 1_000_000;
+
+        log.warn("start() : {} processes in {} ms ({} processes/s)", rows, loopedMs, rows * 1000L / Math.max(loopedMs, 1));
+        log.warn("startAll() : {} processes in {} ms ({} processes/s)", rows, bulkMs, rows * 1000L / Math.max(bulkMs, 1));
+
+        Assertions.assertEquals(rows, processes.size());
+        Assertions.assertEquals(2 * rows, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_process", Integer.class));
+        Assertions.assertEquals(2 * rows, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM workflow_outbox_event", Integer.class));
+    }
+
+    private static List<ContextEntity> newContexts(int rows) {
+        return IntStream.range(0, rows).mapToObj(i -> new ContextEntity()).toList();
+    }
+}
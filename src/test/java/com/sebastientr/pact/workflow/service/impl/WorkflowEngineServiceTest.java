@@ -10,6 +10,9 @@ import com.sebastientr.workflow.domain.repository.FlowTaskRepository;
 import com.sebastientr.workflow.domain.repository.ProcessRepository;
 import com.sebastientr.workflow.domain.repository.TaskInstanceRepository;
 import com.sebastientr.workflow.domain.repository.TaskRepository;
+import com.sebastientr.workflow.dto.ProcessPageDTO;
+import com.sebastientr.workflow.dto.ProcessSearchDTO;
+import com.sebastientr.workflow.dto.ProcessSummaryDTO;
 import com.sebastientr.workflow.dto.constant.WorkflowEngineConstant;
 import com.sebastientr.workflow.dto.enumeration.ProcessStatus;
 import com.sebastientr.workflow.dto.enumeration.TaskStatus;
@@ -25,9 +28,15 @@ import org.springframework.boot.test.mock.mockito.MockReset;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -80,7 +89,7 @@ class WorkflowEngineServiceTest {
         sleep(1);
 
         verify(workflowEngineEventPublisher, times(1)).publishStartProcessEvent(any(FlowEntity.class), any(ProcessEntity.class));
-        verify(workflowEngineEventPublisher, times(3)).publishStartTaskEvent(any(FlowTaskEntity.class), any(ProcessEntity.class));
+        verify(workflowEngineEventPublisher, times(3)).publishStartTaskEvent(any(FlowTaskEntity.class), any(UUID.class), any(UUID.class), anyInt());
         verify(workflowEngineEventPublisher, times(1)).publishEndProcessEvent(any(ProcessEntity.class));
         verify(workflowEngineEventPublisher, times(3)).publishEndTaskEvent(any(FlowTaskEntity.class), any(ProcessEntity.class), any(TaskInstanceEntity.class));
 
@@ -92,6 +101,35 @@ class WorkflowEngineServiceTest {
         Assertions.assertEquals(3, process.getTaskSuccessCount());
     }
 
+    @Test
+    void testPriorityIsInheritedBySteps() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity(), 5);
+        sleep(1);
+
+        verify(workflowEngineEventPublisher, times(3)).publishStartTaskEvent(any(FlowTaskEntity.class), eq(process.getId()), any(UUID.class), eq(5));
+
+        process = workflowEngineService.get(process.getId().toString());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+        Assertions.assertEquals(5, process.getPriority());
+    }
+
+    @Test
+    void testStartAll() {
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", List.of(new ContextEntity(), new ContextEntity(), new ContextEntity()));
+        Assertions.assertEquals(3, processes.size());
+        sleep(1);
+
+        verify(workflowEngineEventPublisher, times(3)).publishStartProcessEvent(any(FlowEntity.class), any(ProcessEntity.class));
+        verify(workflowEngineEventPublisher, times(9)).publishStartTaskEvent(any(FlowTaskEntity.class), any(UUID.class), any(UUID.class), anyInt());
+        verify(workflowEngineEventPublisher, times(3)).publishEndProcessEvent(any(ProcessEntity.class));
+
+        for (ProcessEntity process : workflowEngineService.get(processes.stream().map(process -> process.getId().toString()).toList())) {
+            Assertions.assertEquals(ProcessStatus.SUCCESS, process.getStatus());
+            Assertions.assertEquals(3, process.getTaskSuccessCount());
+            Assertions.assertNotNull(process.getContext());
+        }
+    }
+
     @Test
     void testGetProcess() {
         ContextEntity context = new ContextEntity();
@@ -104,6 +142,67 @@ class WorkflowEngineServiceTest {
         Assertions.assertEquals(process.getId().toString(), processRetrieved.getId().toString());
     }
 
+    @Test
+    void testGetSummary() {
+        ProcessEntity process = workflowEngineService.start("test-flow", new ContextEntity());
+        sleep(1);
+
+        ProcessSummaryDTO summary = workflowEngineService.getSummary(process.getId().toString());
+
+        Assertions.assertEquals(process.getId(), summary.getId());
+        Assertions.assertEquals("test-flow", summary.getFlowName());
+        Assertions.assertEquals(ProcessStatus.SUCCESS, summary.getStatus());
+        Assertions.assertEquals(3, summary.getTaskTotalCount());
+        Assertions.assertEquals(3, summary.getTaskSuccessCount());
+        Assertions.assertEquals(0, summary.getTaskErrorCount());
+        Assertions.assertNotNull(summary.getUpdatedAt());
+
+        String unknownId = UUID.randomUUID().toString();
+        Assertions.assertThrows(WorkflowEngineRuntimeException.class, () -> workflowEngineService.getSummary(unknownId));
+    }
+
+    @Test
+    void testGetSummaries() {
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", List.of(new ContextEntity(), new ContextEntity()));
+        sleep(1);
+
+        List<String> processIds = List.of(processes.get(0).getId().toString(), processes.get(1).getId().toString(), UUID.randomUUID().toString());
+        List<ProcessSummaryDTO> summaries = workflowEngineService.getSummaries(processIds);
+
+        Assertions.assertEquals(processes.stream().map(ProcessEntity::getId).sorted().toList(), summaries.stream().map(ProcessSummaryDTO::getId).sorted().toList());
+        Assertions.assertTrue(summaries.stream().allMatch(summary -> ProcessStatus.SUCCESS.equals(summary.getStatus())));
+    }
+
+    @Test
+    void testSearch() {
+        List<ProcessEntity> processes = workflowEngineService.startAll("test-flow", List.of(new ContextEntity(), new ContextEntity(), new ContextEntity(), new ContextEntity(), new ContextEntity()));
+        sleep(1);
+
+        // Read every page of two processes
+        List<ProcessSummaryDTO> found = new ArrayList<>();
+        ProcessSearchDTO search = new ProcessSearchDTO("test-flow", ProcessStatus.SUCCESS, null, null, null, 2);
+        int pages = 0;
+
+        do {
+            ProcessPageDTO page = workflowEngineService.search(search);
+            found.addAll(page.getProcesses());
+            search.setCursor(page.getNextCursor());
+            pages++;
+        } while (search.getCursor() != null);
+
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(processes.stream().map(ProcessEntity::getId).sorted().toList(), found.stream().map(ProcessSummaryDTO::getId).sorted().toList());
+        Assertions.assertEquals(found, found.stream().sorted(Comparator.comparing(ProcessSummaryDTO::getCreatedAt).thenComparing(ProcessSummaryDTO::getId).reversed()).toList());
+
+        Assertions.assertTrue(workflowEngineService.search(new ProcessSearchDTO("other-flow", null, null, null, null, null)).getProcesses().isEmpty());
+        Assertions.assertTrue(workflowEngineService.search(new ProcessSearchDTO(null, ProcessStatus.ERROR, null, null, null, null)).getProcesses().isEmpty());
+        Assertions.assertTrue(workflowEngineService.search(new ProcessSearchDTO(null, null, LocalDateTime.now(), null, null, null)).getProcesses().isEmpty());
+        Assertions.assertEquals(5, workflowEngineService.search(new ProcessSearchDTO(null, null, null, LocalDateTime.now(), null, null)).getProcesses().size());
+
+        ProcessSearchDTO invalidCursor = new ProcessSearchDTO(null, null, null, null, "invalid", null);
+        Assertions.assertThrows(WorkflowEngineRuntimeException.class, () -> workflowEngineService.search(invalidCursor));
+    }
+
     @Test
     void testGetProcessList() {
         ContextEntity contextA = new ContextEntity();
@@ -145,6 +244,33 @@ class WorkflowEngineServiceTest {
         Assertions.assertEquals(TaskStatus.ERROR, processRetrieved.getTaskInstances().get(process.getTaskInstances().size() - 1).getStatus());
     }
 
+    @Test
+    void testSetInProgressTasksToErrorWhenOneIsNotAllowedToFail() {
+        ContextEntity context = new ContextEntity();
+
+        ProcessEntity process = workflowEngineService.start("test-flow", context);
+        sleep(1);
+
+        // Interrupted on both a task allowed to fail and a task that is not
+        process = workflowEngineService.get(process.getId().toString());
+        process.setStatus(ProcessStatus.IN_PROGRESS);
+        TaskInstanceEntity notAllowedToFail = process.getTaskInstances().get(0);
+        TaskInstanceEntity allowedToFail = process.getTaskInstances().get(process.getTaskInstances().size() - 1);
+        notAllowedToFail.setStatus(TaskStatus.IN_PROGRESS);
+        allowedToFail.setStatus(TaskStatus.IN_PROGRESS);
+
+        processRepository.save(process);
+        taskInstanceRepository.saveAll(List.of(notAllowedToFail, allowedToFail));
+
+        workflowEngineProcessor.endExistingTasksOnStartup();
+
+        ProcessEntity processRetrieved = workflowEngineService.get(process.getId().toString());
+
+        Assertions.assertEquals(ProcessStatus.ERROR, processRetrieved.getStatus());
+        Assertions.assertEquals(TaskStatus.ERROR, taskInstanceRepository.findById(notAllowedToFail.getId()).orElseThrow().getStatus());
+        Assertions.assertEquals(TaskStatus.ERROR, taskInstanceRepository.findById(allowedToFail.getId()).orElseThrow().getStatus());
+    }
+
     @Test
     void testRetryProcess() {
         ContextEntity context = new ContextEntity();
@@ -153,6 +279,7 @@ class WorkflowEngineServiceTest {
         var failingTask = taskRepository.findById(2L).orElseThrow();
         failingTask.setName("FailingTestTask");
         taskRepository.save(failingTask);
+        workflowEngineService.reloadFlows();
         ProcessEntity process = workflowEngineService.start("test-flow", context);
 
         Assertions.assertEquals(ProcessStatus.INIT, process.getStatus());
@@ -164,6 +291,7 @@ class WorkflowEngineServiceTest {
         // Then retry the same process with the failed task, but this time with a new task that does not fail
         failingTask.setName("SecondTestTask");
         taskRepository.save(failingTask);
+        workflowEngineService.reloadFlows();
         process.getTaskInstances().get(1).setTaskName("SecondTestTask");
         processRepository.save(process);
         taskInstanceRepository.save(process.getTaskInstances().get(1));
@@ -195,6 +323,7 @@ class WorkflowEngineServiceTest {
         failingFlowTaskTask.setAllowToFail(false);
         flowTaskRepository.save(failingFlowTaskTask);
         taskRepository.save(failingTask);
+        workflowEngineService.reloadFlows();
         ProcessEntity process = workflowEngineService.start("test-flow", context);
 
         Assertions.assertEquals(ProcessStatus.INIT, process.getStatus());
@@ -204,6 +333,7 @@ class WorkflowEngineServiceTest {
         // Then retry the same process with the failed task, but this time with a new task that does not fail
         failingTask.setName("SecondTestTask");
         taskRepository.save(failingTask);
+        workflowEngineService.reloadFlows();
         process.getTaskInstances().get(1).setTaskName("SecondTestTask");
         processRepository.save(process);
         taskInstanceRepository.save(process.getTaskInstances().get(1));
@@ -245,6 +375,7 @@ class WorkflowEngineServiceTest {
         var flow = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
         flow.getFlowTask().get(1).setEnabled(false);
         flowTaskRepository.save(flow.getFlowTask().get(1));
+        workflowEngineService.reloadFlows();
         ProcessEntity process = workflowEngineService.start("test-flow", context);
 
         sleep(1);
@@ -264,6 +395,7 @@ class WorkflowEngineServiceTest {
         var flow = flowRepository.findByNameOrderByTaskOrder("test-flow").orElseThrow();
         flow.getFlowTask().get(0).setEnabled(false);
         flowTaskRepository.save(flow.getFlowTask().get(0));
+        workflowEngineService.reloadFlows();
         ProcessEntity process = workflowEngineService.start("test-flow", context);
         Assertions.assertEquals(ProcessStatus.INIT, process.getStatus());
         sleep(1);
@@ -284,6 +416,7 @@ class WorkflowEngineServiceTest {
         flow.getFlowTask().get(1).setEnabled(false);
         flow.getFlowTask().get(2).setEnabled(false);
         flowTaskRepository.saveAll( flow.getFlowTask());
+        workflowEngineService.reloadFlows();
 
         WorkflowEngineRuntimeException exception = Assertions.assertThrows(WorkflowEngineRuntimeException.class, () -> workflowEngineService.start("test-flow", context));
 